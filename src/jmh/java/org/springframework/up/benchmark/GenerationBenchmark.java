@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.up.config.TemplateRepositoryProperties;
+import org.springframework.up.config.UpCliProperties;
+import org.springframework.up.git.GitClientRegistry;
+import org.springframework.up.git.SourceRepositoryService;
+import org.springframework.up.git.TemplateCache;
+import org.springframework.up.git.UrlRepositoryService;
+import org.springframework.up.util.BuildMetadataReader;
+import org.springframework.up.util.PackageRefactorer;
+import org.springframework.up.util.PackageRefactorer.Changes;
+import org.springframework.up.util.ProjectFileCopier;
+import org.springframework.up.util.ProjectIndex;
+import org.springframework.up.util.ProjectInfo;
+import org.springframework.up.util.RootPackageFinder;
+import org.springframework.up.util.TokenReplacer;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Benchmarks phases of generating a project from a local {@code file:}
+ * template the same way {@code boot new} does, and all phases together.
+ * Each phase is its own benchmark so that throughput is reported per phase,
+ * run with a {@code gc} profiler to see an allocation rate of each.
+ *
+ * @author Janne Valkealahti
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class GenerationBenchmark {
+
+	private final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	@State(Scope.Benchmark)
+	public static class Template {
+
+		@Param({ "100", "1000", "10000" })
+		int files;
+
+		Path directory;
+
+		Path cacheDirectory;
+
+		SourceRepositoryService sourceRepositoryService;
+
+		ProjectIndex index;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			directory = Files.createTempDirectory("benchmark-template-");
+			cacheDirectory = Files.createTempDirectory("benchmark-cache-");
+			SyntheticTemplate.write(directory, files);
+			sourceRepositoryService = new UrlRepositoryService(new TemplateRepositoryProperties(),
+					new UpCliProperties(), new TemplateCache(cacheDirectory, 0), new GitClientRegistry());
+			index = ProjectIndex.build(directory, PARALLELISM);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			FileSystemUtils.deleteRecursively(directory);
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+
+		String url() {
+			return directory.toUri().toString();
+		}
+	}
+
+	/**
+	 * Empty directories for refactored sources and for a generated project for
+	 * an invocation, created outside of a measurement.
+	 */
+	@State(Scope.Thread)
+	public static class Invocation {
+
+		Path refactored;
+
+		Path target;
+
+		@Setup(Level.Invocation)
+		public void setup() throws IOException {
+			refactored = Files.createTempDirectory("benchmark-refactored-");
+			target = Files.createTempDirectory("benchmark-target-");
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() throws IOException {
+			FileSystemUtils.deleteRecursively(refactored);
+			FileSystemUtils.deleteRecursively(target);
+		}
+	}
+
+	@Benchmark
+	public Path retrieve(Template template) {
+		return template.sourceRepositoryService.retrieveRepositoryContents(template.url());
+	}
+
+	@Benchmark
+	public ProjectIndex index(Template template) {
+		return ProjectIndex.build(template.directory, PARALLELISM);
+	}
+
+	@Benchmark
+	public Optional<String> findRootPackage(Template template) {
+		return new RootPackageFinder().findRootPackage(template.index);
+	}
+
+	@Benchmark
+	public Optional<ProjectInfo> readProjectInfo(Template template) {
+		return new BuildMetadataReader().read(template.index);
+	}
+
+	@Benchmark
+	public Changes refactorPackage(Template template, Invocation invocation) {
+		return new PackageRefactorer(PARALLELISM).refactor(template.index, SyntheticTemplate.ROOT_PACKAGE,
+				SyntheticTemplate.TARGET_PACKAGE, invocation.refactored);
+	}
+
+	@Benchmark
+	public void copy(Template template, Invocation invocation) {
+		TokenReplacer replacer = TokenReplacer.of(new BuildMetadataReader().read(template.index).get(),
+				new ProjectInfo("newproject", "com.example", "newproject", "0.0.1-SNAPSHOT"));
+		new ProjectFileCopier(PARALLELISM).copy(template.index, invocation.target.toFile(), replacer);
+	}
+
+	/**
+	 * All phases in an order {@code boot new} runs them.
+	 */
+	@Benchmark
+	public void generate(Template template, Invocation invocation) {
+		Path contents = template.sourceRepositoryService.retrieveRepositoryContents(template.url());
+		ProjectIndex index = ProjectIndex.build(contents, PARALLELISM);
+		RootPackageFinder rootPackageFinder = new RootPackageFinder();
+		String rootPackage = rootPackageFinder.findRootPackage(index).get();
+		Changes changes = new PackageRefactorer(PARALLELISM).refactor(index, rootPackage,
+				SyntheticTemplate.TARGET_PACKAGE, invocation.refactored);
+		index = index.withChanges(changes);
+		ProjectInfo from = new BuildMetadataReader().read(index).get();
+		TokenReplacer replacer = TokenReplacer.of(from,
+				new ProjectInfo("newproject", from.getGroupId(), "newproject", from.getVersion()));
+		new ProjectFileCopier(PARALLELISM).copy(index, invocation.target.toFile(), replacer);
+	}
+}
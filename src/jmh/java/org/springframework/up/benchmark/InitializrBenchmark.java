@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.spring.initializr.generator.version.Version;
+import io.spring.initializr.generator.version.VersionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.shell.table.ArrayTableModel;
+import org.springframework.shell.table.BorderStyle;
+import org.springframework.shell.table.TableBuilder;
+import org.springframework.up.initializr.DependencyCompatibilityMatrix;
+import org.springframework.up.initializr.InitializrUtils;
+import org.springframework.up.initializr.model.Dependency;
+import org.springframework.up.initializr.model.Metadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * Benchmarks checking dependency compatibility against a boot version over
+ * all dependencies of initializr metadata, as done when listing dependencies
+ * and when populating a dependency selector. Parsing every range on every
+ * check is kept as a baseline for memoized ranges and a precomputed matrix.
+ *
+ * @author Janne Valkealahti
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InitializrBenchmark {
+
+	private final static VersionParser VERSION_PARSER = new VersionParser(Collections.emptyList());
+
+	@Param({ "2.6.4", "2.7.0-SNAPSHOT", "2.5.10" })
+	String bootVersion;
+
+	private List<Dependency> dependencies;
+
+	private DependencyCompatibilityMatrix matrix;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		Metadata metadata;
+		try (InputStream in = new ClassPathResource("initializr/metadata.json").getInputStream()) {
+			metadata = objectMapper.readValue(in, Metadata.class);
+		}
+		dependencies = metadata.getDependencies().getValues().stream()
+				.flatMap(dc -> dc.getValues().stream())
+				.collect(Collectors.toList());
+		matrix = new DependencyCompatibilityMatrix(metadata);
+	}
+
+	@Benchmark
+	public void compatibilityParsingEachCall(Blackhole blackhole) {
+		for (Dependency dependency : dependencies) {
+			boolean compatible = true;
+			if (StringUtils.hasText(dependency.getVersionRange())) {
+				Version version = VERSION_PARSER.parse(bootVersion);
+				compatible = VERSION_PARSER.parseRange(dependency.getVersionRange()).match(version);
+			}
+			blackhole.consume(compatible);
+		}
+	}
+
+	@Benchmark
+	public void compatibilityMemoized(Blackhole blackhole) {
+		Version version = InitializrUtils.parseVersion(bootVersion);
+		for (Dependency dependency : dependencies) {
+			blackhole.consume(InitializrUtils.isDependencyCompatible(dependency, version));
+		}
+	}
+
+	@Benchmark
+	public void compatibilityMatrix(Blackhole blackhole) {
+		BitSet compatible = matrix.getCompatible(bootVersion);
+		for (int i = 0; i < dependencies.size(); i++) {
+			blackhole.consume(compatible.get(i));
+		}
+	}
+
+	/**
+	 * Same as {@code initializr dependencies} with a version, rendering a whole
+	 * table.
+	 */
+	@Benchmark
+	public String dependenciesTable() {
+		Stream<String[]> header = Stream.<String[]>of(new String[] { "Id", "Name", "Description", "Required version" });
+		Stream<String[]> rows = matrix.getCompatibleDependencies(bootVersion).stream()
+				.map(d -> new String[] { d.getId(), d.getName(), d.getDescription(), d.getVersionRange() });
+		String[][] data = Stream.concat(header, rows).toArray(String[][]::new);
+		return new TableBuilder(new ArrayTableModel(data)).addFullBorder(BorderStyle.fancy_light).build().render(160);
+	}
+}
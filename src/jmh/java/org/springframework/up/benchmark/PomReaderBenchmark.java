@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.up.util.PomReader;
+import org.springframework.up.util.ProjectInfo;
+
+/**
+ * Compares reading template coordinates with a streaming parser against
+ * reading a full maven model.
+ *
+ * @author Janne Valkealahti
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PomReaderBenchmark {
+
+	private final PomReader pomReader = new PomReader();
+
+	private File pom;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		pom = Files.createTempFile("benchmark-pom-", ".xml").toFile();
+		try (InputStream in = new ClassPathResource("pom/boot-template-pom.xml").getInputStream()) {
+			Files.copy(in, pom.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(pom.toPath());
+	}
+
+	@Benchmark
+	public ProjectInfo streamedCoordinates() {
+		return pomReader.readCoordinates(pom);
+	}
+
+	@Benchmark
+	public Model fullModel() {
+		return pomReader.readPom(pom);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Writes a synthetic template resembling a typical boot project with a given
+ * number of files. Most files are main sources referencing a root package,
+ * rest are tests, text resources containing a project name and binaries.
+ *
+ * @author Janne Valkealahti
+ */
+final class SyntheticTemplate {
+
+	final static String PROJECT_NAME = "rpt-spring-data-jpa";
+
+	final static String ROOT_PACKAGE = "com.example.demo";
+
+	final static String TARGET_PACKAGE = "org.acme.app";
+
+	private final static int PACKAGES = 20;
+
+	private SyntheticTemplate() {
+	}
+
+	static void write(Path directory, int files) throws IOException {
+		Files.createDirectories(directory);
+		try (InputStream in = new ClassPathResource("pom/boot-template-pom.xml").getInputStream()) {
+			Files.write(directory.resolve("pom.xml"), StreamUtils.copyToByteArray(in));
+		}
+		write(directory, "src/main/java/com/example/demo/DemoApplication.java",
+				"package com.example.demo;\n\n"
+				+ "import org.springframework.boot.SpringApplication;\n"
+				+ "import org.springframework.boot.autoconfigure.SpringBootApplication;\n\n"
+				+ "@SpringBootApplication\n"
+				+ "public class DemoApplication {\n\n"
+				+ "\tpublic static void main(String[] args) {\n"
+				+ "\t\tSpringApplication.run(DemoApplication.class, args);\n"
+				+ "\t}\n}\n");
+		for (int i = 0; i < files - 2; i++) {
+			String pkg = "p" + (i % PACKAGES);
+			switch (i % 10) {
+			case 6:
+			case 7:
+				write(directory, "src/test/java/com/example/demo/" + pkg + "/Type" + i + "Tests.java",
+						"package com.example.demo." + pkg + ";\n\n"
+						+ "public class Type" + i + "Tests {\n\n"
+						+ "\tType" + i + " type = new Type" + i + "();\n}\n");
+				break;
+			case 8:
+				write(directory, "src/main/resources/" + pkg + "/resource" + i + ".properties",
+						"spring.application.name=" + PROJECT_NAME + "\nvalue=" + i + "\n");
+				break;
+			case 9:
+				Path binary = directory.resolve("src/main/resources/" + pkg + "/image" + i + ".png");
+				Files.createDirectories(binary.getParent());
+				byte[] bytes = new byte[1024];
+				byte[] magic = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+				System.arraycopy(magic, 0, bytes, 0, magic.length);
+				for (int b = magic.length; b < bytes.length; b++) {
+					bytes[b] = (byte) (b * 31 + i);
+				}
+				Files.write(binary, bytes);
+				break;
+			default:
+				write(directory, "src/main/java/com/example/demo/" + pkg + "/Type" + i + ".java",
+						"package com.example.demo." + pkg + ";\n\n"
+						+ "import com.example.demo.DemoApplication;\n\n"
+						+ "public class Type" + i + " {\n\n"
+						+ "\tprivate Class<?> application = DemoApplication.class;\n\n"
+						+ "\tpublic String name() {\n"
+						+ "\t\treturn \"" + PROJECT_NAME + "\";\n"
+						+ "\t}\n}\n");
+			}
+		}
+	}
+
+	private static void write(Path directory, String name, String content) throws IOException {
+		Path file = directory.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.jline.utils.AttributedString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import org.springframework.shell.table.ArrayTableModel;
+import org.springframework.shell.table.BorderStyle;
+import org.springframework.shell.table.Table;
+import org.springframework.shell.table.TableBuilder;
+import org.springframework.shell.table.TableModel;
+import org.springframework.up.UpException;
+import org.springframework.up.command.BatchManifest.InitializrSpec;
+import org.springframework.up.command.BatchManifest.ProjectSpec;
+import org.springframework.up.git.SourceRepositoryService;
+import org.springframework.up.git.TemplateCache;
+import org.springframework.up.initializr.InitializrClient;
+import org.springframework.up.initializr.model.Metadata;
+import org.springframework.up.support.AbstractUpCliCommands;
+import org.springframework.up.support.configfile.YamlConfigFile;
+import org.springframework.up.util.IoUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Commands generating multiple projects from a manifest.
+ *
+ * @author Janne Valkealahti
+ */
+@ShellComponent
+public class BatchCommands extends AbstractUpCliCommands {
+
+	private final static Logger logger = LoggerFactory.getLogger(BatchCommands.class);
+
+	private final BootCommands bootCommands;
+
+	private final InitializrClient initializrClient;
+
+	private final SourceRepositoryService sourceRepositoryService;
+
+	private final TemplateCache templateCache;
+
+	public BatchCommands(BootCommands bootCommands, InitializrClient initializrClient,
+			SourceRepositoryService sourceRepositoryService, TemplateCache templateCache) {
+		this.bootCommands = bootCommands;
+		this.initializrClient = initializrClient;
+		this.sourceRepositoryService = sourceRepositoryService;
+		this.templateCache = templateCache;
+	}
+
+	@ShellMethod(key = "batch new", value = "Create multiple new projects defined in a manifest")
+	public Table batchNew(
+		@ShellOption(help = "Path to a projects manifest") String manifest,
+		@ShellOption(help = "Maximum number of projects generated concurrently", defaultValue = ShellOption.NULL) Integer parallelism
+	) {
+		long start = System.nanoTime();
+		BatchManifest batchManifest = readManifest(Path.of(manifest));
+		List<ProjectSpec> specs = batchManifest.getProjects();
+		if (specs == null || specs.isEmpty()) {
+			throw new UpException("No projects defined in " + manifest);
+		}
+		specs.forEach(BatchCommands::validate);
+		validateUnique(specs);
+
+		// resolve shared inputs once before any project is generated
+		Metadata metadata = null;
+		if (specs.stream().anyMatch(spec -> spec.getInitializr() != null)) {
+			metadata = initializrClient.getMetadata();
+		}
+		Map<String, Path> templates = new LinkedHashMap<>();
+		try {
+			retrieveTemplates(specs, templates);
+			return generate(specs, metadata, templates, parallelism, batchManifest, start);
+		}
+		finally {
+			templates.values().forEach(templateCache::unpin);
+		}
+	}
+
+	private Table generate(List<ProjectSpec> specs, Metadata metadata, Map<String, Path> templates,
+			Integer parallelism, BatchManifest batchManifest, long start) {
+		int threads = parallelism != null ? parallelism
+				: batchManifest.getParallelism() != null ? batchManifest.getParallelism()
+				: Runtime.getRuntime().availableProcessors();
+		threads = Math.max(1, Math.min(threads, specs.size()));
+		logger.debug("Generating {} projects with parallelism {}", specs.size(), threads);
+		File baseDirectory = baseDirectory(batchManifest);
+
+		// projects refactoring a same template into a same package derive same
+		// changes, first of those is generated before others which then find
+		// changes from a template cache instead of refactoring concurrently
+		List<ProjectSpec> first = new ArrayList<>();
+		List<ProjectSpec> rest = new ArrayList<>();
+		Set<String> refactorings = new HashSet<>();
+		for (ProjectSpec spec : specs) {
+			String refactoring = spec.getTemplate() + "|" + spec.getPackageName();
+			if (spec.getInitializr() == null && !refactorings.add(refactoring)) {
+				rest.add(spec);
+			}
+			else {
+				first.add(spec);
+			}
+		}
+
+		Map<ProjectSpec, String[]> rows = new IdentityHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			generate(first, metadata, templates, baseDirectory, executor, rows);
+			generate(rest, metadata, templates, baseDirectory, executor, rows);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		Stream<String[]> header = Stream.<String[]>of(new String[] { "Project", "Source", "Status", "Time" });
+		Stream<String[]> total = Stream.<String[]>of(new String[] { "Total", "", "", formatTime(start) });
+		String[][] data = Stream.concat(Stream.concat(header, specs.stream().map(rows::get)), total)
+				.toArray(String[][]::new);
+		TableModel model = new ArrayTableModel(data);
+		TableBuilder tableBuilder = new TableBuilder(model);
+		return tableBuilder.addFullBorder(BorderStyle.fancy_light).build();
+	}
+
+	/**
+	 * Generates projects concurrently and prints their output from a calling
+	 * thread in a manifest order, so that output of projects never interleaves.
+	 */
+	private void generate(List<ProjectSpec> specs, Metadata metadata, Map<String, Path> templates,
+			File baseDirectory, ExecutorService executor, Map<ProjectSpec, String[]> rows) {
+		List<Future<String[]>> futures = new ArrayList<>();
+		List<List<AttributedString>> outputs = new ArrayList<>();
+		for (ProjectSpec spec : specs) {
+			List<AttributedString> output = Collections.synchronizedList(new ArrayList<>());
+			outputs.add(output);
+			futures.add(executor.submit(() -> generate(spec, metadata, templates, baseDirectory, output::add)));
+		}
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				rows.put(specs.get(i), futures.get(i).get());
+				shellPrint(outputs.get(i).toArray(new AttributedString[0]));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpException("Interrupted while generating projects", e);
+		}
+		catch (ExecutionException e) {
+			throw new UpException("Failed generating projects", e.getCause());
+		}
+	}
+
+	/**
+	 * Projects are generated into a directory of a manifest, relative to a
+	 * working directory, or into a working directory itself.
+	 */
+	private static File baseDirectory(BatchManifest batchManifest) {
+		File workingDirectory = IoUtils.getWorkingDirectory();
+		if (!StringUtils.hasText(batchManifest.getDirectory())) {
+			return workingDirectory;
+		}
+		Path directory = workingDirectory.toPath().resolve(batchManifest.getDirectory());
+		try {
+			Files.createDirectories(directory);
+		}
+		catch (IOException e) {
+			throw new UpException("Can't create path " + directory, e);
+		}
+		return directory.toFile();
+	}
+
+	static BatchManifest readManifest(Path path) {
+		if (!Files.isRegularFile(path)) {
+			throw new UpException("Manifest " + path.toAbsolutePath() + " doesn't exist");
+		}
+		return new YamlConfigFile().read(path, BatchManifest.class);
+	}
+
+	private static void validate(ProjectSpec spec) {
+		if (!StringUtils.hasText(spec.getName())) {
+			throw new UpException("Project in a manifest is missing a name");
+		}
+		if (StringUtils.hasText(spec.getTemplate()) == (spec.getInitializr() != null)) {
+			throw new UpException("Project " + spec.getName() + " needs either a template or an initializr section");
+		}
+	}
+
+	/**
+	 * Projects are generated into directories named after them, two projects
+	 * with a same name would write into a same directory.
+	 */
+	static void validateUnique(List<ProjectSpec> specs) {
+		Set<String> directories = new HashSet<>();
+		for (ProjectSpec spec : specs) {
+			String directory = spec.getInitializr() != null && StringUtils.hasText(spec.getInitializr().getPath())
+					? spec.getInitializr().getPath() : spec.getName().replaceAll(" ", "_");
+			if (!directories.add(directory.toLowerCase(Locale.ROOT))) {
+				throw new UpException("Project " + spec.getName() + " in a manifest would be generated into "
+						+ directory + " which is already used by another project");
+			}
+		}
+	}
+
+	/**
+	 * Retrieve each distinct template once so that projects using same template
+	 * share its contents. This is done one template at a time as it's mostly
+	 * about network and template cache updates. Each retrieved template is
+	 * pinned in a template cache so that retrieving a next one can't evict it
+	 * before its projects have been generated.
+	 */
+	private void retrieveTemplates(List<ProjectSpec> specs, Map<String, Path> templates) {
+		for (ProjectSpec spec : specs) {
+			if (StringUtils.hasText(spec.getTemplate()) && !templates.containsKey(spec.getTemplate())) {
+				String url = bootCommands.getTemplateRepositoryUrl(spec.getTemplate());
+				Path contents = sourceRepositoryService.retrieveRepositoryContents(url);
+				templateCache.pin(contents);
+				templates.put(spec.getTemplate(), contents);
+			}
+		}
+	}
+
+	private String[] generate(ProjectSpec spec, Metadata metadata, Map<String, Path> templates, File baseDirectory,
+			Consumer<AttributedString> output) {
+		long start = System.nanoTime();
+		String source = spec.getInitializr() != null ? "initializr" : spec.getTemplate();
+		try {
+			if (spec.getInitializr() != null) {
+				generateFromInitializr(spec, metadata, baseDirectory);
+			}
+			else {
+				bootCommands.generateFromContents(spec.getName(), templates.get(spec.getTemplate()),
+						bootCommands.getPackageName(spec.getPackageName()), baseDirectory, output);
+			}
+			return new String[] { spec.getName(), source, "OK", formatTime(start) };
+		}
+		catch (RuntimeException e) {
+			logger.error("Failed generating project " + spec.getName(), e);
+			return new String[] { spec.getName(), source, "Failed: " + e.getMessage(), formatTime(start) };
+		}
+	}
+
+	private void generateFromInitializr(ProjectSpec spec, Metadata metadata, File baseDirectory) {
+		InitializrSpec initializr = spec.getInitializr();
+		String path = StringUtils.hasText(initializr.getPath()) ? initializr.getPath() : spec.getName();
+		Path directory = baseDirectory.toPath().resolve(path);
+		try {
+			Files.createDirectories(directory);
+		}
+		catch (IOException e) {
+			throw new UpException("Can't create path " + directory, e);
+		}
+		initializrClient.generate(directory,
+				valueOrDefault(initializr.getProject(), metadata.getType().getDefault()),
+				valueOrDefault(initializr.getLanguage(), metadata.getLanguage().getDefault()),
+				valueOrDefault(initializr.getBootVersion(), metadata.getBootVersion().getDefaultversion()),
+				initializr.getDependencies(),
+				valueOrDefault(initializr.getVersion(), metadata.getVersion().getDefault()),
+				valueOrDefault(initializr.getGroup(), metadata.getGroupId().getDefault()),
+				valueOrDefault(initializr.getArtifact(), spec.getName()),
+				spec.getName(),
+				valueOrDefault(initializr.getDescription(), metadata.getDescription().getDefault()),
+				valueOrDefault(spec.getPackageName(), metadata.getPackageName().getDefault()),
+				valueOrDefault(initializr.getPackaging(), metadata.getPackaging().getDefault()),
+				valueOrDefault(initializr.getJavaVersion(), metadata.getJavaVersion().getDefault()));
+	}
+
+	private static String valueOrDefault(String value, String defaultValue) {
+		return StringUtils.hasText(value) ? value : defaultValue;
+	}
+
+	private static String formatTime(long start) {
+		return String.format("%sms", (System.nanoTime() - start) / 1_000_000);
+	}
+}
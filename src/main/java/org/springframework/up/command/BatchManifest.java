@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest of projects generated by a {@code batch new} command. Each project
+ * is generated either from a template or from initializr. A template is a
+ * name of a configured template repository or its url, either a {@code https}
+ * url or a {@code file:} url of a local directory:
+ *
+ * <pre>
+ * parallelism: 4
+ * directory: generated
+ * projects:
+ *   - name: orders
+ *     template: jpa
+ *     package-name: com.example.orders
+ *   - name: invoices
+ *     template: file:/home/user/templates/jpa
+ *   - name: billing
+ *     initializr:
+ *       boot-version: 2.6.4
+ *       dependencies:
+ *         - web
+ *         - actuator
+ * </pre>
+ *
+ * @author Janne Valkealahti
+ */
+public class BatchManifest {
+
+	private Integer parallelism;
+	private String directory;
+	private List<ProjectSpec> projects = new ArrayList<>();
+
+	public Integer getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(Integer parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Gets a directory projects are generated into, relative to a working
+	 * directory which is used if not set.
+	 *
+	 * @return the directory
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public List<ProjectSpec> getProjects() {
+		return projects;
+	}
+
+	public void setProjects(List<ProjectSpec> projects) {
+		this.projects = projects;
+	}
+
+	/**
+	 * Spec of a single project.
+	 */
+	public static class ProjectSpec {
+
+		private String name;
+		private String packageName;
+		private String template;
+		private InitializrSpec initializr;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getPackageName() {
+			return packageName;
+		}
+
+		public void setPackageName(String packageName) {
+			this.packageName = packageName;
+		}
+
+		public String getTemplate() {
+			return template;
+		}
+
+		public void setTemplate(String template) {
+			this.template = template;
+		}
+
+		public InitializrSpec getInitializr() {
+			return initializr;
+		}
+
+		public void setInitializr(InitializrSpec initializr) {
+			this.initializr = initializr;
+		}
+	}
+
+	/**
+	 * Initializr options of a project, defaults from initializr metadata are
+	 * used for anything not set.
+	 */
+	public static class InitializrSpec {
+
+		private String path;
+		private String project;
+		private String language;
+		private String bootVersion;
+		private String version;
+		private String group;
+		private String artifact;
+		private String description;
+		private List<String> dependencies = new ArrayList<>();
+		private String packaging;
+		private String javaVersion;
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public String getProject() {
+			return project;
+		}
+
+		public void setProject(String project) {
+			this.project = project;
+		}
+
+		public String getLanguage() {
+			return language;
+		}
+
+		public void setLanguage(String language) {
+			this.language = language;
+		}
+
+		public String getBootVersion() {
+			return bootVersion;
+		}
+
+		public void setBootVersion(String bootVersion) {
+			this.bootVersion = bootVersion;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public void setVersion(String version) {
+			this.version = version;
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public void setGroup(String group) {
+			this.group = group;
+		}
+
+		public String getArtifact() {
+			return artifact;
+		}
+
+		public void setArtifact(String artifact) {
+			this.artifact = artifact;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public void setDescription(String description) {
+			this.description = description;
+		}
+
+		public List<String> getDependencies() {
+			return dependencies;
+		}
+
+		public void setDependencies(List<String> dependencies) {
+			this.dependencies = dependencies;
+		}
+
+		public String getPackaging() {
+			return packaging;
+		}
+
+		public void setPackaging(String packaging) {
+			this.packaging = packaging;
+		}
+
+		public String getJavaVersion() {
+			return javaVersion;
+		}
+
+		public void setJavaVersion(String javaVersion) {
+			this.javaVersion = javaVersion;
+		}
+	}
+}
@@ -17,26 +17,18 @@ package org.springframework.up.command;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
-import org.apache.maven.model.Model;
-import org.apache.tika.Tika;
-import org.apache.tools.ant.util.FileUtils;
-import org.codehaus.plexus.util.DirectoryScanner;
+import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStringBuilder;
 import org.jline.utils.AttributedStyle;
-import org.openrewrite.InMemoryExecutionContext;
-import org.openrewrite.Recipe;
-import org.openrewrite.SourceFile;
-import org.openrewrite.java.ChangePackage;
-import org.openrewrite.java.Java11Parser;
-import org.openrewrite.java.JavaParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,16 +39,22 @@ import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 import org.springframework.up.UpException;
 import org.springframework.up.git.SourceRepositoryService;
+import org.springframework.up.git.TemplateCache;
 import org.springframework.up.support.AbstractUpCliCommands;
 import org.springframework.up.support.UpCliUserConfig;
 import org.springframework.up.support.UpCliUserConfig.TemplateRepository;
-import org.springframework.up.util.FileTypeCollectingFileVisitor;
+import org.springframework.up.util.BuildMetadataReader;
 import org.springframework.up.util.IoUtils;
 import org.springframework.up.util.PackageNameUtils;
-import org.springframework.up.util.PomReader;
+import org.springframework.up.util.PackageRefactorer;
+import org.springframework.up.util.PackageRefactorer.Changes;
+import org.springframework.up.util.ProjectFileCopier;
+import org.springframework.up.util.ProjectIndex;
 import org.springframework.up.util.ProjectInfo;
-import org.springframework.up.util.ResultsExecutor;
 import org.springframework.up.util.RootPackageFinder;
+import org.springframework.up.util.TokenReplacer;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
 
 @ShellComponent
@@ -66,15 +64,20 @@ public class BootCommands extends AbstractUpCliCommands {
 
 	private static final String DEFAULT_REPO_URL = "https://github.com/rd-1-2022/rpt-spring-data-jpa";
 
+	private static final String PROJECT_INFO = "project-info";
+
 	private UpCliUserConfig upCliUserConfig;
 
 	private final SourceRepositoryService sourceRepositoryService;
 
+	private final TemplateCache templateCache;
+
 	@Autowired
 	public BootCommands(UpCliUserConfig upCliUserConfig,
-			SourceRepositoryService sourceRepositoryService) {
+			SourceRepositoryService sourceRepositoryService, TemplateCache templateCache) {
 		this.upCliUserConfig = upCliUserConfig;
 		this.sourceRepositoryService = sourceRepositoryService;
+		this.templateCache = templateCache;
 	}
 
 	@ShellMethod(key = "boot new", value = "Create a new Spring Boot project from a template")
@@ -96,11 +99,11 @@ public class BootCommands extends AbstractUpCliCommands {
 	}
 
 	@Nullable
-	private String getTemplateRepositoryUrl(String templateName) {
+	String getTemplateRepositoryUrl(String templateName) {
 		// If provided template name on the command line
 		if (StringUtils.hasText(templateName)) {
-			// Check it if is a URL
-			if (templateName.startsWith("https")) {
+			// Check it if is a URL or a local directory
+			if (templateName.startsWith("https") || templateName.startsWith("file:")) {
 				return templateName;
 			}
 			// Find URL from name
@@ -118,7 +121,7 @@ public class BootCommands extends AbstractUpCliCommands {
 		return DEFAULT_REPO_URL;
 	}
 
-	private String getPackageName(String packageName) {
+	String getPackageName(String packageName) {
 		String defaultPackageName = packageName;
 		if (defaultPackageName == null) {
 			defaultPackageName = getCliProperties().getDefaults().getPackageName();
@@ -148,149 +151,167 @@ public class BootCommands extends AbstractUpCliCommands {
 		throw new UpException("Could not resolve template name " + templateName + " to URL.  Check configuration file settings.");
 	}
 
-	private void generateFromUrl(String projectName, String url, String packageName) {
+	void generateFromUrl(String projectName, String url, String packageName) {
 
 		logger.debug("Generating project {} from url {} with Java package name {} ", projectName, url, packageName);
-		Path repositoryContentsPath = sourceRepositoryService.retrieveRepositoryContents(url);
+		Path retrievedPath = sourceRepositoryService.retrieveRepositoryContents(url);
+		generateFromContents(projectName, retrievedPath, packageName);
+	}
+
+	/**
+	 * Generate a project into a working directory from already retrieved
+	 * contents, printing output into a shell.
+	 */
+	void generateFromContents(String projectName, Path retrievedPath, String packageName) {
+		generateFromContents(projectName, retrievedPath, packageName, IoUtils.getWorkingDirectory(), this::shellPrint);
+	}
+
+	/**
+	 * Generate a project from already retrieved contents which are kept as is,
+	 * making it possible to use same contents for multiple projects. Unchanged
+	 * files are copied straight from retrieved contents and only refactored
+	 * sources are written elsewhere first. Output is given to a consumer so
+	 * that a caller generating projects concurrently can print it from a
+	 * single thread.
+	 */
+	void generateFromContents(String projectName, Path retrievedPath, String packageName, File baseDirectory,
+			Consumer<AttributedString> output) {
+
+		// Index retrieved contents once, later steps use it instead of scanning again
+		int parallelism = getCliProperties().getGeneration().getParallelism();
+		ProjectIndex index = ProjectIndex.build(retrievedPath, parallelism);
 
 		// Get existing package name
-		Optional<String> existingPackageName = this.getRootPackageName(repositoryContentsPath);
+		Optional<String> existingPackageName = this.getRootPackageName(index, output);
 
 		// Refactor packages if package name is available
-		if (StringUtils.hasText(packageName) && existingPackageName.isPresent()) {
-			refactorPackage(packageName, existingPackageName.get(), repositoryContentsPath);
-		}
+		Path refactoredPath = null;
+		try {
+			if (StringUtils.hasText(packageName) && existingPackageName.isPresent()) {
+				Optional<Changes> cachedChanges = getCachedRefactoring(packageName, existingPackageName.get(),
+						retrievedPath);
+				if (cachedChanges.isPresent()) {
+					index = index.withChanges(cachedChanges.get());
+				}
+				else {
+					refactoredPath = createRefactoringDirectory();
+					index = refactorPackage(packageName, existingPackageName.get(), retrievedPath, index,
+							refactoredPath);
+				}
+			}
 
-		// Derive existing project name
-		Optional<ProjectInfo> projectInfo = getProjectInfo(repositoryContentsPath);
-		logger.debug("Existing project = " + projectInfo);
-
-		// Copy files
-		File fromDir = repositoryContentsPath.toFile();
-		File toDir = createProjectDirectory(projectName);
-
-		DirectoryScanner ds = new DirectoryScanner();
-		ds.setBasedir(fromDir);
-		ds.scan();
-		String[] fileNames = ds.getIncludedFiles();
-
-		toDir.mkdirs();
-		for (String fileName : fileNames) {
-			File srcFile = new File(fromDir, fileName);
-			File destFile = new File(toDir, fileName);
-			logger.debug("Copy from " + srcFile + " to " + destFile);
-			Tika tika = new Tika();
-			try {
-				FileUtils.getFileUtils().copyFile(srcFile, destFile);
-				if (projectInfo.isPresent()) {
-					if (tika.detect(destFile).startsWith("text") || tika.detect(destFile).contains("xml")) {
-						List<String> replacedLines = new ArrayList<>();
-						List<String> originalLines = Files.readAllLines(destFile.toPath());
-						for (String originalLine : originalLines) {
-							replaceString(projectName, projectInfo, destFile, replacedLines, originalLine);
-						}
-						Files.write(destFile.toPath(), replacedLines);
-					}
-					// set executable file system permissions if needed.
-					if (srcFile.canExecute()) {
-						destFile.setExecutable(true);
-					}
+			// Derive existing project name
+			Optional<ProjectInfo> projectInfo = getProjectInfo(retrievedPath, index);
+			logger.debug("Existing project = " + projectInfo);
+
+			// Copy files
+			File toDir = createProjectDirectory(baseDirectory, projectName);
+			ProjectFileCopier copier = new ProjectFileCopier(parallelism);
+			copier.copy(index, toDir, tokenReplacer(projectName, projectInfo));
+		}
+		finally {
+			if (refactoredPath != null) {
+				try {
+					FileSystemUtils.deleteRecursively(refactoredPath);
+				}
+				catch (IOException e) {
+					logger.warn("Not able to delete refactored sources " + refactoredPath, e);
 				}
-			} catch (IOException e) {
-				throw new UpException(
-						"Could not copy files from " + fromDir.getAbsolutePath() + " to " + toDir.getAbsolutePath());
 			}
 		}
 
 		AttributedStringBuilder sb = new AttributedStringBuilder();
 		sb.style(sb.style().foreground(AttributedStyle.GREEN));
 		sb.append("Project " + projectName + " created.");
-		shellPrint(sb.toAttributedString());
+		output.accept(sb.toAttributedString());
 	}
 
-	private void replaceString(String projectName, Optional<ProjectInfo> projectInfo, File destFile, List<String> replacedLines, String originalLine) {
-		boolean replaced = false;
-		if (originalLine.contains(projectInfo.get().getName())) {
-			replaced = true;
-			// can only replace one token per line with this algorithm
-			String processedLine = originalLine.replace(projectInfo.get().getName(), projectName);
-			replacedLines.add(processedLine);
-			logger.debug("In file " + destFile.getAbsolutePath() + " replaced " + projectInfo.get().getName() + " with "
-					+ projectName);
-			logger.debug("Processed line = " + processedLine);
+	private TokenReplacer tokenReplacer(String projectName, Optional<ProjectInfo> projectInfo) {
+		if (projectInfo.isEmpty()) {
+			return new TokenReplacer(Collections.emptyMap());
 		}
-		if (!replaced) {
-			replacedLines.add(originalLine);
+		// new project gets its name and artifactId from a project name
+		ProjectInfo from = projectInfo.get();
+		ProjectInfo to = new ProjectInfo(projectName, from.getGroupId(), projectName, from.getVersion());
+		return TokenReplacer.of(from, to);
+	}
+
+	private Optional<ProjectInfo> getProjectInfo(Path retrievedPath, ProjectIndex index) {
+		// build files of a template commit never change, refactoring only touches sources
+		Optional<Path> cachedProjectInfo = templateCache.lookupDerived(retrievedPath, PROJECT_INFO);
+		if (cachedProjectInfo.isPresent()) {
+			return BuildMetadataReader.load(cachedProjectInfo.get());
 		}
+		Optional<ProjectInfo> projectInfo = new BuildMetadataReader().read(index);
+		templateCache.storeDerived(retrievedPath, PROJECT_INFO, directory -> BuildMetadataReader.save(projectInfo, directory));
+		return projectInfo;
 	}
 
-	private Optional<ProjectInfo> getProjectInfo(Path repositoryContentsPath) {
-		File contentDirectory = repositoryContentsPath.toFile();
-		File pomFile = new File(contentDirectory, "pom.xml");
-		if (pomFile.exists()) {
-			PomReader pomReader = new PomReader();
-			Model model = pomReader.readPom(pomFile);
-			ProjectInfo projectInfo = new ProjectInfo(model.getName(), model.getGroupId(), model.getArtifactId(), model.getVersion());
-			return Optional.of(projectInfo);
+	private Path createRefactoringDirectory() {
+		try {
+			return Files.createTempDirectory("source-refactored-");
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to create temp directory: " + e.getMessage(), e);
 		}
-		// TODO search settings.gradle
-		return Optional.empty();
 	}
 
-	private File createProjectDirectory(String projectName) {
-		File workingDirectory = IoUtils.getWorkingDirectory();
+	private File createProjectDirectory(File baseDirectory, String projectName) {
 		String projectNameToUse = projectName.replaceAll(" ", "_");
-		File projectDirectory = new File(workingDirectory, projectNameToUse);
+		File projectDirectory = new File(baseDirectory, projectNameToUse);
 		IoUtils.createDirectory(projectDirectory);
 		logger.debug("Created directory " + projectDirectory);
 		return projectDirectory;
 	}
 
-	private Optional<String> getRootPackageName(Path workingPath) {
+	private Optional<String> getRootPackageName(ProjectIndex index, Consumer<AttributedString> output) {
 		// Derive fromPackage using location of existing @SpringBootApplication class.
-		// TODO warning if find multiple @SpringBootApplication classes.
 		RootPackageFinder rootPackageFinder = new RootPackageFinder();
-		logger.debug("Looking for @SpringBootApplication in directory " + workingPath.toFile());
-		Optional<String> rootPackage = rootPackageFinder.findRootPackage(workingPath.toFile());
-		if (rootPackage.isEmpty()) {
+		logger.debug("Looking for @SpringBootApplication in directory " + index.getRoot());
+		List<String> applicationClasses = rootPackageFinder.findApplicationClasses(index);
+		if (applicationClasses.size() > 1) {
+			AttributedStringBuilder sb = new AttributedStringBuilder();
+			sb.style(sb.style().foreground(AttributedStyle.YELLOW));
+			sb.append("Found multiple classes with @SpringBootApplication " + applicationClasses
+					+ ".  Using " + applicationClasses.get(0) + " to find the root package.");
+			output.accept(sb.toAttributedString());
+		}
+		if (applicationClasses.isEmpty()) {
 			AttributedStringBuilder sb = new AttributedStringBuilder();
 			sb.style(sb.style().foreground(AttributedStyle.YELLOW));
 			sb.append("Could find root package containing class with @SpringBootApplication.  No Java Package refactoring from the template will occur.");
-			shellPrint(sb.toAttributedString());
+			output.accept(sb.toAttributedString());
 			return Optional.empty();
 		}
 
-		return rootPackage;
+		return Optional.of(rootPackageFinder.extractRootPackageName(new File(applicationClasses.get(0))));
 	}
 
-	private void refactorPackage(String targetPackageName, String fromPackage, Path workingPath) {
-		logger.debug("Refactoring to package name " + targetPackageName);
-		JavaParser javaParser = new Java11Parser.Builder().build();
-		FileTypeCollectingFileVisitor collector = new FileTypeCollectingFileVisitor(".java");
-		try {
-			Files.walkFileTree(workingPath, collector);
-		}
-		catch (IOException e) {
-			throw new UpException("Failed reading files in " + workingPath, e);
-		}
-		Consumer<Throwable> onError = e -> {
-			logger.error("error in javaParser execution", e);
-		};
-		InMemoryExecutionContext executionContext = new InMemoryExecutionContext(onError);
-		List<? extends SourceFile> compilationUnits = javaParser.parse(collector.getMatches(), null, executionContext);
-		ResultsExecutor container = new ResultsExecutor();
-
-		Recipe recipe = new ChangePackage(fromPackage, targetPackageName, true);
-		container.addAll(recipe.run(compilationUnits));
-		try {
-			container.execute();
-		}
-		catch (IOException e) {
-			throw new UpException("Error performing refactoring", e);
-		}
+	private Optional<Changes> getCachedRefactoring(String targetPackageName, String fromPackage,
+			Path retrievedPath) {
+		Optional<Path> cachedChanges = templateCache.lookupDerived(retrievedPath,
+				refactoringCacheName(fromPackage, targetPackageName));
+		cachedChanges.ifPresent(path -> logger.debug("Replaying cached refactoring from " + path));
+		return cachedChanges.map(Changes::replay);
+	}
+
+	private ProjectIndex refactorPackage(String targetPackageName, String fromPackage, Path retrievedPath,
+			ProjectIndex index, Path refactoredPath) {
+		PackageRefactorer refactorer = new PackageRefactorer(getCliProperties().getGeneration().getParallelism());
+		Changes changes = refactorer.refactor(index, fromPackage, targetPackageName, refactoredPath);
+		templateCache.storeDerived(retrievedPath, refactoringCacheName(fromPackage, targetPackageName),
+				changes::save);
 
 		//TODO change groupId and artifactId
+		return index.withChanges(changes);
 	}
 
-
+	/**
+	 * Same template commit refactored into same package always gives same
+	 * changes.
+	 */
+	private static String refactoringCacheName(String fromPackage, String targetPackageName) {
+		return "refactor-"
+				+ DigestUtils.md5DigestAsHex((fromPackage + "|" + targetPackageName).getBytes(StandardCharsets.UTF_8));
+	}
 }
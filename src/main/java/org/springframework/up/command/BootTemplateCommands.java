@@ -15,6 +15,8 @@
  */
 package org.springframework.up.command;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -30,20 +32,25 @@ import org.springframework.shell.table.BorderStyle;
 import org.springframework.shell.table.Table;
 import org.springframework.shell.table.TableBuilder;
 import org.springframework.shell.table.TableModel;
+import org.springframework.up.git.TemplateCache;
 import org.springframework.up.support.UpCliUserConfig;
 import org.springframework.up.support.UpCliUserConfig.TemplateRepositories;
 import org.springframework.up.support.UpCliUserConfig.TemplateRepository;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
 @ShellComponent
 public class BootTemplateCommands {
 
 	private final UpCliUserConfig upCliUserConfig;
 
+	private final TemplateCache templateCache;
+
 	@Autowired
-	public BootTemplateCommands(UpCliUserConfig upCliUserConfig) {
+	public BootTemplateCommands(UpCliUserConfig upCliUserConfig, TemplateCache templateCache) {
 		this.upCliUserConfig = upCliUserConfig;
+		this.templateCache = templateCache;
 	}
 
 	@ShellMethod(key = "template add", value = "Add template")
@@ -91,4 +98,26 @@ public class BootTemplateCommands {
 		templateRepositoriesConfig.setTemplateRepositories(templateRepositories);
 		upCliUserConfig.setTemplateRepositoriesConfig(templateRepositoriesConfig);
 	}
+
+	@ShellMethod(key = "template cache list", value = "List locally cached templates")
+	public Table templateCacheList() {
+		Stream<String[]> header = Stream.<String[]>of(
+				new String[] { "Url", "Ref", "Commit", "Sub Path", "Size", "Last Used" });
+		Stream<String[]> rows = templateCache.getEntries().stream()
+			.map(e -> new String[] { e.getUrl(), e.getRef(), e.getSha(), e.getSubPath(),
+				DataSize.ofBytes(e.getSize()).toKilobytes() + "KB",
+				Instant.ofEpochMilli(e.getLastUsed()).truncatedTo(ChronoUnit.SECONDS).toString() });
+		String[][] data = Stream.concat(header, rows).toArray(String[][]::new);
+		TableModel model = new ArrayTableModel(data);
+		TableBuilder tableBuilder = new TableBuilder(model);
+		return tableBuilder.addFullBorder(BorderStyle.fancy_light).build();
+	}
+
+	@ShellMethod(key = "template cache prune", value = "Prune locally cached templates")
+	public String templateCachePrune(
+		@ShellOption(help = "Remove all cached templates") boolean all
+	) {
+		int removed = all ? templateCache.clear() : templateCache.prune();
+		return String.format("Removed %s cached templates from %s", removed, templateCache.getDirectory());
+	}
 }
@@ -21,7 +21,6 @@ import java.util.Map;
 
 import org.jline.utils.AttributedString;
 import org.kohsuke.github.GitHub;
-import org.kohsuke.github.GitHubBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +32,7 @@ import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 import org.springframework.shell.style.ThemeSettings;
+import org.springframework.up.git.GitClientRegistry;
 import org.springframework.up.support.AbstractUpCliCommands;
 import org.springframework.up.support.UpCliUserConfig;
 import org.springframework.up.support.UpCliUserConfig.Host;
@@ -60,6 +60,9 @@ public class GithubCommands extends AbstractUpCliCommands {
 	@Autowired
 	private UpCliUserConfig userConfig;
 
+	@Autowired
+	private GitClientRegistry gitClientRegistry;
+
 	/**
 	 * Login command for github. Makes user to choose either starting a device flow
 	 * via browser or pasting a token created manually.
@@ -141,7 +144,7 @@ public class GithubCommands extends AbstractUpCliCommands {
 		else {
 			String loginName = null;
 			try {
-				GitHub gh = new GitHubBuilder().withOAuthToken(host.getOauthToken()).build();
+				GitHub gh = gitClientRegistry.getGitHub("github.com", host.getOauthToken());
 				loginName = gh.getMyself().getLogin();
 				log.debug("Got loginName {}", loginName);
 			} catch (IOException e) {
@@ -17,16 +17,15 @@ package org.springframework.up.command;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import org.rauschig.jarchivelib.Archiver;
-import org.rauschig.jarchivelib.ArchiverFactory;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.component.context.ComponentContext;
 import org.springframework.shell.component.flow.ComponentFlow;
@@ -43,8 +42,9 @@ import org.springframework.shell.table.BorderStyle;
 import org.springframework.shell.table.Table;
 import org.springframework.shell.table.TableBuilder;
 import org.springframework.shell.table.TableModel;
+import org.springframework.up.initializr.DependencyCompatibilityMatrix;
 import org.springframework.up.initializr.InitializrClient;
-import org.springframework.up.initializr.InitializrUtils;
+import org.springframework.up.initializr.model.Dependency;
 import org.springframework.up.initializr.model.Metadata;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
@@ -121,6 +121,8 @@ public class InitializrCommands extends AbstractShellComponent {
 		@ShellOption(help = "Java", defaultValue = ShellOption.NULL) String javaVersion
 	) {
 		Metadata metadata = client.getMetadata();
+		DependencyCompatibilityMatrix dependencyCompatibility = client.getDependencyCompatibility();
+		List<Dependency> allDependencies = dependencyCompatibility.getDependencies();
 
 		Map<String, String> projectSelectItems = metadata.getType().getValues().stream()
 				.filter(v -> ObjectUtils.nullSafeEquals(v.getTags().get("format"), "project"))
@@ -209,10 +211,9 @@ public class InitializrCommands extends AbstractShellComponent {
 					.resultValues(dependencies)
 					.resultMode(ResultMode.ACCEPT)
 					.preHandler(context -> {
-						String bootVersionValue = context.get(BOOT_VERSION_ID);
-						List<SelectItem> dependenciesSelectItems = metadata.getDependencies().getValues().stream()
-								.flatMap(dc -> dc.getValues().stream())
-								.map(dep -> SelectItem.of(dep.getName(), dep.getId(), InitializrUtils.isDependencyCompatible(dep, bootVersionValue)))
+						BitSet compatible = dependencyCompatibility.getCompatible(context.get(BOOT_VERSION_ID));
+						List<SelectItem> dependenciesSelectItems = IntStream.range(0, allDependencies.size())
+								.mapToObj(i -> SelectItem.of(allDependencies.get(i).getName(), allDependencies.get(i).getId(), compatible.get(i)))
 								.collect(Collectors.toList());
 						List<SelectorItem<String>> selectorItems = dependenciesSelectItems.stream()
 								.map(si -> SelectorItem.of(si.name(), si.item(), si.enabled()))
@@ -243,7 +244,11 @@ public class InitializrCommands extends AbstractShellComponent {
 
 		Path pathValue = result.getContext().get(PATH_ID);
 		List<String> dependenciesValue = result.getContext().get(DEPENDENCIES_ID);
-		Path generated = client.generate(context.get(PROJECT_ID, String.class),
+		File outFile = pathValue.toFile();
+		if (!outFile.mkdirs()) {
+			throw new RuntimeException(String.format("Can't create path %s", outFile.getAbsolutePath()));
+		}
+		client.generate(pathValue, context.get(PROJECT_ID, String.class),
 				context.get(LANGUAGE_ID, String.class),
 				context.get(BOOT_VERSION_ID, String.class),
 				dependenciesValue,
@@ -255,18 +260,6 @@ public class InitializrCommands extends AbstractShellComponent {
 				context.get(PACKAGE_NAME_ID, String.class),
 				context.get(PACKAGING_ID, String.class),
 				context.get(JAVA_VERSION_ID, String.class));
-
-		File outFile = pathValue.toFile();
-		if (!outFile.mkdirs()) {
-			throw new RuntimeException(String.format("Can't create path %s", outFile.getAbsolutePath()));
-		}
-		Archiver archiver = ArchiverFactory.createArchiver("tar", "gz");
-		try {
-			archiver.extract(generated.toFile(), outFile);
-		} catch (Exception e) {
-			throw new RuntimeException(String.format("Extraction error from %s to %s",
-					generated.toFile().getAbsolutePath(), outFile.getAbsolutePath()), e);
-		}
 		return String.format("Extracted to %s", outFile.getAbsolutePath());
 	}
 
@@ -280,12 +273,10 @@ public class InitializrCommands extends AbstractShellComponent {
 		@ShellOption(help = "Search string to limit results", defaultValue = ShellOption.NULL) String search,
 		@ShellOption(help = "Limit to compatibility version", defaultValue = ShellOption.NULL) String version
 	) {
-		Metadata metadata = client.getMetadata();
+		DependencyCompatibilityMatrix dependencyCompatibility = client.getDependencyCompatibility();
 
 		Stream<String[]> header = Stream.<String[]>of(new String[] { "Id", "Name", "Description", "Required version" });
-		Stream<String[]> rows = metadata.getDependencies().getValues().stream()
-				.flatMap(dc -> dc.getValues().stream())
-				.filter(d -> InitializrUtils.isDependencyCompatible(d, version))
+		Stream<String[]> rows = dependencyCompatibility.getCompatibleDependencies(version).stream()
 				.map(d -> new String[] { d.getId(), d.getName(), d.getDescription(), d.getVersionRange() })
 				.filter(d -> matches(d, search));
 		String[][] data = Stream.concat(header, rows).toArray(String[][]::new);
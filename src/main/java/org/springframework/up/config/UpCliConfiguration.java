@@ -24,7 +24,10 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorResourceFactory;
+import org.springframework.up.git.GitClientRegistry;
+import org.springframework.up.git.TemplateCache;
 import org.springframework.up.initializr.InitializrClient;
+import org.springframework.up.initializr.InitializrMetadataCache;
 import org.springframework.up.support.UpCliUserConfig;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -54,9 +57,15 @@ public class UpCliConfiguration {
 	}
 
 	@Bean
-	public InitializrClient initializrClient(WebClient.Builder webClientBuilder, UpCliProperties upCliProperties) {
+	public InitializrClient initializrClient(WebClient.Builder webClientBuilder, UpCliProperties upCliProperties,
+			UpCliUserConfig upCliUserConfig) {
+		InitializrMetadataCache metadataCache = new InitializrMetadataCache(
+				upCliUserConfig.getConfigDir().resolve("cache").resolve("initializr"),
+				upCliProperties.getInitializr().getCacheTtl());
 		return InitializrClient.builder(webClientBuilder)
 				.target(upCliProperties.getInitializr().getBaseUrl())
+				.offline(upCliProperties.isOffline())
+				.metadataCache(metadataCache)
 				.build();
 	}
 
@@ -64,4 +73,15 @@ public class UpCliConfiguration {
 	public UpCliUserConfig upCliUserConfig() {
 		return new UpCliUserConfig();
 	}
+
+	@Bean
+	public TemplateCache templateCache(UpCliUserConfig upCliUserConfig, UpCliProperties upCliProperties) {
+		return new TemplateCache(upCliUserConfig.getConfigDir().resolve("cache").resolve("templates"),
+				upCliProperties.getTemplateCache().getMaxSize().toBytes());
+	}
+
+	@Bean
+	public GitClientRegistry gitClientRegistry() {
+		return new GitClientRegistry();
+	}
 }
@@ -42,6 +42,10 @@ import org.springframework.nativex.hint.ResourceHint;
 import org.springframework.nativex.hint.TypeAccess;
 import org.springframework.nativex.hint.TypeHint;
 import org.springframework.nativex.type.NativeConfiguration;
+import org.springframework.up.command.BatchManifest;
+import org.springframework.up.command.BatchManifest.InitializrSpec;
+import org.springframework.up.command.BatchManifest.ProjectSpec;
+import org.springframework.up.git.TemplateCacheEntry;
 import org.springframework.up.initializr.model.ArtifactId;
 import org.springframework.up.initializr.model.BootVersion;
 import org.springframework.up.initializr.model.Dependencies;
@@ -98,7 +102,8 @@ import org.springframework.up.initializr.model.ProjectType.ProjectTypeValue;
 				Description.class, GroupId.class, IdName.class, JavaVersion.class, JavaVersionValues.class, Language.class,
 				LanguageValues.class, Metadata.class, Name.class, PackageName.class, Packaging.class, PackagingValues.class,
 				ProjectType.class, ProjectTypeValue.class, Version.class, CallbackReference.class, Native.class,
-				NativeLong.class, PointerByReference.class, IntByReference.class, Base64.Decoder.class
+				NativeLong.class, PointerByReference.class, IntByReference.class, Base64.Decoder.class,
+				TemplateCacheEntry.class, BatchManifest.class, ProjectSpec.class, InitializrSpec.class
 			},
 			typeNames = { "com.sun.jna.Klass" },
 			access = {
@@ -15,7 +15,10 @@
  */
 package org.springframework.up.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Configuration properties for cli.
@@ -31,6 +34,18 @@ public class UpCliProperties {
 
 	private Defaults defaults = new Defaults();
 
+	private TemplateCache templateCache = new TemplateCache();
+
+	private Generation generation = new Generation();
+
+	/**
+	 * Whether cli works without a network access. Templates are then resolved
+	 * only from a template cache or local files and initializr only from a
+	 * mirror set as its base url, failing fast if something is not available
+	 * or base url is a public initializr.
+	 */
+	private boolean offline = false;
+
 	public Initializr getInitializr() {
 		return initializr;
 	}
@@ -55,12 +70,42 @@ public class UpCliProperties {
 		this.defaults = defaults;
 	}
 
+	public TemplateCache getTemplateCache() {
+		return templateCache;
+	}
+
+	public void setTemplateCache(TemplateCache templateCache) {
+		this.templateCache = templateCache;
+	}
+
+	public Generation getGeneration() {
+		return generation;
+	}
+
+	public void setGeneration(Generation generation) {
+		this.generation = generation;
+	}
+
+	public boolean isOffline() {
+		return offline;
+	}
+
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+
 	/**
 	 * Settings for spring initializr.
 	 */
 	public static class Initializr {
 		private String baseUrl = "https://start.spring.io";
 
+		/**
+		 * How long cached metadata is used before it's refreshed. Stale metadata
+		 * is still used while a refresh happens in a background.
+		 */
+		private Duration cacheTtl = Duration.ofHours(1);
+
 		public String getBaseUrl() {
 			return baseUrl;
 		}
@@ -69,10 +114,19 @@ public class UpCliProperties {
 			this.baseUrl = baseUrl;
 		}
 
+		public Duration getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+
 		@Override
 		public String toString() {
 			return "Initializr{" +
 					"baseUrl='" + baseUrl + '\'' +
+					", cacheTtl=" + cacheTtl +
 					'}';
 		}
 	}
@@ -115,12 +169,100 @@ public class UpCliProperties {
 		}
 	}
 
+	/**
+	 * Settings for a local cache of retrieved template repositories.
+	 */
+	public static class TemplateCache {
+
+		/**
+		 * Whether retrieved templates are kept in a local cache.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum total size of cached templates before least recently used ones
+		 * are evicted.
+		 */
+		private DataSize maxSize = DataSize.ofMegabytes(512);
+
+		/**
+		 * How long a cached ref, other than a commit sha, is used before it's
+		 * resolved again against a remote repository. Contents are downloaded
+		 * again only if a resolved commit has changed. Within this time a cached
+		 * template is used without any network access, zero resolves a ref on
+		 * every use.
+		 */
+		private Duration revalidateAfter = Duration.ofMinutes(5);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public DataSize getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public Duration getRevalidateAfter() {
+			return revalidateAfter;
+		}
+
+		public void setRevalidateAfter(Duration revalidateAfter) {
+			this.revalidateAfter = revalidateAfter;
+		}
+
+		@Override
+		public String toString() {
+			return "TemplateCache{" +
+					"enabled=" + enabled +
+					", maxSize=" + maxSize +
+					", revalidateAfter=" + revalidateAfter +
+					'}';
+		}
+	}
+
+	/**
+	 * Settings for generating a project from a template.
+	 */
+	public static class Generation {
+
+		/**
+		 * Maximum number of template files copied concurrently.
+		 */
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+		@Override
+		public String toString() {
+			return "Generation{" +
+					"parallelism=" + parallelism +
+					'}';
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "UpCliProperties{" +
 				"initializr=" + initializr +
 				", github=" + github +
 				", defaults=" + defaults +
+				", templateCache=" + templateCache +
+				", generation=" + generation +
+				", offline=" + offline +
 				'}';
 	}
 }
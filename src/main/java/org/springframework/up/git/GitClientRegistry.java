@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gitlab4j.api.GitLabApi;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.up.UpException;
+
+/**
+ * Registry of {@link GitHub} and {@link GitLabApi} clients keyed by a host and
+ * a token. Clients are created once and then shared by everyone needing to
+ * talk to same host with same credentials so that underlying connections are
+ * kept alive and reused instead of going through a new handshake every time.
+ * Clients are closed when registry is destroyed.
+ *
+ * @author Janne Valkealahti
+ */
+public class GitClientRegistry implements DisposableBean {
+
+	private final static Logger log = LoggerFactory.getLogger(GitClientRegistry.class);
+
+	private final static String GITHUB_HOST = "github.com";
+
+	private final static String GITHUB_API_URL = "https://api.github.com";
+
+	private final Map<ClientKey, GitHub> gitHubClients = new ConcurrentHashMap<>();
+
+	private final Map<ClientKey, GitLabApi> gitLabClients = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets a {@link GitHub} client for a host, anonymous if token is not given.
+	 * Hosts other than {@code github.com} are expected to be GitHub Enterprise
+	 * servers having their api under {@code /api/v3}.
+	 *
+	 * @param host the host
+	 * @param token the oauth token, may be {@code null}
+	 * @return the client
+	 */
+	public GitHub getGitHub(String host, String token) {
+		return gitHubClients.computeIfAbsent(new ClientKey(host, token), (key) -> {
+			String endpoint = gitHubEndpoint(host);
+			log.debug("Creating GitHub client for {} using {}", host, endpoint);
+			try {
+				GitHubBuilder builder = new GitHubBuilder().withEndpoint(endpoint);
+				if (token != null) {
+					builder.withOAuthToken(token);
+				}
+				return builder.build();
+			}
+			catch (IOException e) {
+				throw new UpException("Failed to create GitHub client for " + host, e);
+			}
+		});
+	}
+
+	/**
+	 * Gets a {@link GitLabApi} client for a host.
+	 *
+	 * @param scheme the scheme, either http or https
+	 * @param host the host
+	 * @param token the access token
+	 * @return the client
+	 */
+	public GitLabApi getGitLabApi(String scheme, String host, String token) {
+		return gitLabClients.computeIfAbsent(new ClientKey(scheme + "://" + host, token), (key) -> {
+			log.debug("Creating GitLab client for {}", key.host);
+			return new GitLabApi(key.host, token);
+		});
+	}
+
+	@Override
+	public void destroy() {
+		gitLabClients.values().forEach((gitLabApi) -> {
+			try {
+				gitLabApi.close();
+			}
+			catch (Exception e) {
+				log.debug("Error closing GitLab client", e);
+			}
+		});
+		gitLabClients.clear();
+		// github clients use jdk managed connections which don't need closing
+		gitHubClients.clear();
+	}
+
+	private static String gitHubEndpoint(String host) {
+		if (GITHUB_HOST.equalsIgnoreCase(host)) {
+			return GITHUB_API_URL;
+		}
+		return "https://" + host + "/api/v3";
+	}
+
+	private static class ClientKey {
+
+		private final String host;
+		private final String token;
+
+		ClientKey(String host, String token) {
+			this.host = host;
+			this.token = token;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			ClientKey other = (ClientKey) o;
+			return Objects.equals(host, other.host) && Objects.equals(token, other.token);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(host, token);
+		}
+	}
+}
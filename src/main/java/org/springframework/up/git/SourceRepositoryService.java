@@ -28,7 +28,8 @@ public interface SourceRepositoryService {
 	 * @param sourceRepoUrl the URL of the repository to retrieve the content for.
 	 * Supported URL schemes are file:// and https://. The latter can refer to a GitHub
 	 * (host is github.com) repository or a GitLab repository.
-	 * @return the full Path to where the contents have been retrieved
+	 * @return the full Path to where the contents have been retrieved. Contents
+	 * may be shared with other retrievals and must be treated as read-only.
 	 */
 	Path retrieveRepositoryContents(String sourceRepoUrl);
 
@@ -0,0 +1,601 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.UpException;
+import org.springframework.up.support.configfile.ConfigFile;
+import org.springframework.up.support.configfile.YamlConfigFile;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Persistent on-disk cache for retrieved template repositories.
+ *
+ * Entries are content addressable and keyed by a repository url, a resolved
+ * commit sha and an optional sub path. A separate ref index maps a requested
+ * ref to a commit sha it was last resolved to which allows to serve a cache
+ * hit without touching a network at all. Cached content is made read-only and
+ * should never be modified by a caller.
+ *
+ * <pre>
+ * entries/&lt;key&gt;/entry.yml
+ * entries/&lt;key&gt;/content/
+ * entries/&lt;key&gt;/derived/&lt;name&gt;/
+ * refs/&lt;key&gt;             (contains '&lt;sha&gt; &lt;entry key&gt;')
+ * staging/
+ * </pre>
+ *
+ * Total size of entries, derived content included, is bounded and least
+ * recently used entries are evicted when a new entry or derived content is
+ * stored. Entries pinned by this process are never evicted.
+ *
+ * @author Janne Valkealahti
+ */
+public class TemplateCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemplateCache.class);
+
+	private final static String ENTRIES = "entries";
+	private final static String REFS = "refs";
+	private final static String STAGING = "staging";
+	private final static String ENTRY_FILE = "entry.yml";
+	private final static String CONTENT = "content";
+	private final static String DERIVED = "derived";
+	private final static String DEFAULT_REF = "HEAD";
+	private final static long STAGING_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
+	private final Path directory;
+	private final long maxSize;
+	private final ConfigFile configFile = new YamlConfigFile();
+	private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new template cache.
+	 *
+	 * @param directory the cache base directory
+	 * @param maxSize the maximum total size of entries in bytes
+	 */
+	public TemplateCache(Path directory, long maxSize) {
+		Assert.notNull(directory, "directory must be set");
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Gets the cache base directory.
+	 *
+	 * @return the cache base directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Lookup a cached content for a given url without resolving its ref to a
+	 * commit sha again.
+	 *
+	 * @param url the git repo url
+	 * @return the path to read-only cached content if found
+	 */
+	public Optional<Path> lookup(GitRepoUrlRef url) {
+		Optional<String> sha = readRef(url);
+		if (sha.isEmpty()) {
+			return Optional.empty();
+		}
+		return lookup(url, sha.get());
+	}
+
+	/**
+	 * Gets a commit sha a ref of a given url was last resolved to.
+	 *
+	 * @param url the git repo url
+	 * @return the cached ref if found
+	 */
+	public Optional<CachedRef> getRef(GitRepoUrlRef url) {
+		Path refFile = directory.resolve(REFS).resolve(refKey(url));
+		return readRef(url).map(sha -> new CachedRef(sha, lastModified(refFile)));
+	}
+
+	/**
+	 * Updates a commit sha a ref of a given url resolves to and marks it as
+	 * validated now.
+	 *
+	 * @param url the git repo url
+	 * @param sha the commit sha
+	 */
+	public void updateRef(GitRepoUrlRef url, String sha) {
+		try {
+			writeRef(url, sha);
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to update ref of " + url + " in template cache", e);
+		}
+	}
+
+	/**
+	 * Gets a size of a cached content as it was when stored.
+	 *
+	 * @param contentPath the path to cached content
+	 * @return the size in bytes or zero if not known
+	 */
+	public long getSize(Path contentPath) {
+		return readEntry(contentPath.getParent()).map(TemplateCacheEntry::getSize).orElse(0L);
+	}
+
+	/**
+	 * Lookup a cached content for a given url and a known commit sha.
+	 *
+	 * @param url the git repo url
+	 * @param sha the commit sha
+	 * @return the path to read-only cached content if found
+	 */
+	public Optional<Path> lookup(GitRepoUrlRef url, String sha) {
+		Path entryDir = entriesDirectory().resolve(entryKey(url, sha));
+		Path content = entryDir.resolve(CONTENT);
+		if (!Files.isDirectory(content)) {
+			return Optional.empty();
+		}
+		touch(entryDir.resolve(ENTRY_FILE));
+		return Optional.of(content);
+	}
+
+	/**
+	 * Creates a new directory where retrieved content can be prepared before it's
+	 * stored. Directory is on a same file system with the cache so that content
+	 * can be moved into the cache without copying it.
+	 *
+	 * @return the new staging directory
+	 */
+	public Path createStagingDirectory() {
+		try {
+			Path staging = directory.resolve(STAGING);
+			Files.createDirectories(staging);
+			return Files.createTempDirectory(staging, "source-repo-");
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to create staging directory: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Stores a retrieved content into a cache. Given content path is moved into
+	 * the cache and should not be used after this method returns.
+	 *
+	 * @param url the git repo url
+	 * @param sha the commit sha the ref resolved to
+	 * @param contentPath the retrieved content
+	 * @return the path to read-only cached content
+	 */
+	public Path store(GitRepoUrlRef url, String sha, Path contentPath) {
+		String key = entryKey(url, sha);
+		Path entryDir = entriesDirectory().resolve(key);
+		try {
+			if (!Files.isDirectory(entryDir.resolve(CONTENT))) {
+				Path stagingEntry = createStagingDirectory();
+				Path stagingContent = stagingEntry.resolve(CONTENT);
+				Files.move(contentPath, stagingContent);
+				TemplateCacheEntry entry = new TemplateCacheEntry(normalizeUrl(url), url.getRef(), sha,
+						normalizeSubPath(url), size(stagingContent), System.currentTimeMillis());
+				configFile.write(stagingEntry.resolve(ENTRY_FILE), entry);
+				setWritable(stagingContent, false);
+				Files.createDirectories(entryDir.getParent());
+				try {
+					Files.move(stagingEntry, entryDir, StandardCopyOption.ATOMIC_MOVE);
+					logger.debug("Stored {} as {} into template cache", url, key);
+				}
+				catch (IOException e) {
+					// other process may have stored same entry concurrently
+					delete(stagingEntry);
+					if (!Files.isDirectory(entryDir.resolve(CONTENT))) {
+						throw e;
+					}
+				}
+			}
+			writeRef(url, sha);
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to store " + url + " into template cache", e);
+		}
+		evict(key);
+		return entryDir.resolve(CONTENT);
+	}
+
+	/**
+	 * Pins a cached content so that it's not evicted until it's unpinned, for
+	 * example when it's used after other entries have been stored. Pins are
+	 * counted and content not from this cache is ignored.
+	 *
+	 * @param contentPath the cached content path
+	 */
+	public void pin(Path contentPath) {
+		entryDirectory(contentPath)
+			.ifPresent(entryDir -> pinned.merge(entryDir.getFileName().toString(), 1, Integer::sum));
+	}
+
+	/**
+	 * Releases a pin made with {@link #pin(Path)}.
+	 *
+	 * @param contentPath the cached content path
+	 */
+	public void unpin(Path contentPath) {
+		entryDirectory(contentPath)
+			.ifPresent(entryDir -> pinned.computeIfPresent(entryDir.getFileName().toString(),
+					(key, count) -> count > 1 ? count - 1 : null));
+	}
+
+	/**
+	 * Looks up a content derived from a cached content, like a result of a
+	 * refactoring. Derived content is kept with a cache entry and evicted with
+	 * it.
+	 *
+	 * @param contentPath the cached content path
+	 * @param name the name of a derived content
+	 * @return the path to read-only derived content if it exists
+	 */
+	public Optional<Path> lookupDerived(Path contentPath, String name) {
+		return entryDirectory(contentPath)
+			.map(entryDir -> entryDir.resolve(DERIVED).resolve(name))
+			.filter(Files::isDirectory);
+	}
+
+	/**
+	 * Stores a content derived from a cached content. Nothing is stored if
+	 * content is not from this cache or a same derived content already exists,
+	 * and failures are only logged as derived content can always be created
+	 * again.
+	 *
+	 * @param contentPath the cached content path
+	 * @param name the name of a derived content
+	 * @param writer the callback writing derived content into a given directory
+	 */
+	public void storeDerived(Path contentPath, String name, Consumer<Path> writer) {
+		Optional<Path> entryDir = entryDirectory(contentPath);
+		if (entryDir.isEmpty() || Files.isDirectory(entryDir.get().resolve(DERIVED).resolve(name))) {
+			return;
+		}
+		Path target = entryDir.get().resolve(DERIVED).resolve(name);
+		Path staging = createStagingDirectory();
+		try {
+			writer.accept(staging);
+			setWritable(staging, false);
+			if (!Files.isDirectory(entryDir.get().resolve(CONTENT))) {
+				// entry got evicted meanwhile
+				delete(staging);
+				return;
+			}
+			Files.createDirectories(target.getParent());
+			try {
+				Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+				logger.debug("Stored derived content {} for {}", name, entryDir.get().getFileName());
+			}
+			catch (IOException e) {
+				// same content may have been derived concurrently, which is as good as storing it
+				if (!Files.isDirectory(target)) {
+					throw e;
+				}
+				logger.debug("Derived content {} for {} already stored", name, entryDir.get().getFileName());
+				delete(staging);
+				return;
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			logger.warn("Not able to store derived content " + name + " into template cache", e);
+			delete(staging);
+			return;
+		}
+		evict(entryDir.get().getFileName().toString());
+	}
+
+	/**
+	 * Gets all cache entries, most recently used first.
+	 *
+	 * @return the cache entries
+	 */
+	public List<TemplateCacheEntry> getEntries() {
+		Path entriesDir = entriesDirectory();
+		if (!Files.isDirectory(entriesDir)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> paths = Files.list(entriesDir)) {
+			return paths
+				.filter(p -> Files.isRegularFile(p.resolve(ENTRY_FILE)))
+				.map(this::readEntry)
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.sorted(Comparator.comparingLong(TemplateCacheEntry::getLastUsed).reversed())
+				.collect(Collectors.toList());
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to list template cache " + entriesDir, e);
+		}
+	}
+
+	/**
+	 * Prunes a cache by evicting entries over the size limit and removing
+	 * leftovers from aborted retrievals.
+	 *
+	 * @return number of removed entries
+	 */
+	public int prune() {
+		long now = System.currentTimeMillis();
+		for (Path path : list(directory.resolve(STAGING))) {
+			if (now - lastModified(path) > STAGING_MAX_AGE) {
+				delete(path);
+			}
+		}
+		int removed = evict(null);
+		for (Path path : list(directory.resolve(REFS))) {
+			try {
+				String[] ref = Files.readString(path, StandardCharsets.UTF_8).trim().split(" ");
+				if (ref.length != 2 || !Files.isDirectory(entriesDirectory().resolve(ref[1]))) {
+					Files.deleteIfExists(path);
+				}
+			}
+			catch (IOException e) {
+				logger.debug("Unable to check ref " + path, e);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes all entries from a cache.
+	 *
+	 * @return number of removed entries
+	 */
+	public int clear() {
+		List<TemplateCacheEntry> entries = getEntries();
+		entries.forEach(entry -> delete(entriesDirectory().resolve(entry.getKey())));
+		list(directory.resolve(REFS)).forEach(this::delete);
+		return entries.size();
+	}
+
+	/**
+	 * Evicts least recently used entries until total size is within a limit.
+	 * Size of an entry is its content as stored and all its derived content.
+	 */
+	private int evict(String keepKey) {
+		List<TemplateCacheEntry> entries = getEntries();
+		long[] sizes = new long[entries.size()];
+		long total = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			sizes[i] = entries.get(i).getSize() + derivedSize(entriesDirectory().resolve(entries.get(i).getKey()));
+			total += sizes[i];
+		}
+		int removed = 0;
+		for (int i = entries.size() - 1; i >= 0 && total > maxSize; i--) {
+			TemplateCacheEntry entry = entries.get(i);
+			if (entry.getKey().equals(keepKey) || pinned.containsKey(entry.getKey())) {
+				continue;
+			}
+			logger.debug("Evicting {} from template cache", entry);
+			delete(entriesDirectory().resolve(entry.getKey()));
+			total -= sizes[i];
+			removed++;
+		}
+		return removed;
+	}
+
+	private static long derivedSize(Path entryDir) {
+		Path derived = entryDir.resolve(DERIVED);
+		if (!Files.isDirectory(derived)) {
+			return 0;
+		}
+		try {
+			return size(derived);
+		}
+		catch (IOException e) {
+			logger.debug("Unable to size derived content " + derived, e);
+			return 0;
+		}
+	}
+
+	private Optional<TemplateCacheEntry> readEntry(Path entryDir) {
+		Path entryFile = entryDir.resolve(ENTRY_FILE);
+		try {
+			TemplateCacheEntry entry = configFile.read(entryFile, TemplateCacheEntry.class);
+			entry.setKey(entryDir.getFileName().toString());
+			entry.setLastUsed(lastModified(entryFile));
+			return Optional.of(entry);
+		}
+		catch (Exception e) {
+			logger.debug("Unable to read template cache entry " + entryFile, e);
+			return Optional.empty();
+		}
+	}
+
+	private Optional<String> readRef(GitRepoUrlRef url) {
+		Path refFile = directory.resolve(REFS).resolve(refKey(url));
+		if (!Files.isRegularFile(refFile)) {
+			return Optional.empty();
+		}
+		try {
+			// ref file content is '<sha> <entry key>'
+			String sha = Files.readString(refFile, StandardCharsets.UTF_8).trim().split(" ")[0];
+			return StringUtils.hasText(sha) ? Optional.of(sha) : Optional.empty();
+		}
+		catch (IOException e) {
+			logger.debug("Unable to read ref " + refFile, e);
+			return Optional.empty();
+		}
+	}
+
+	private void writeRef(GitRepoUrlRef url, String sha) throws IOException {
+		Path refs = directory.resolve(REFS);
+		Files.createDirectories(refs);
+		Path tmp = Files.createTempFile(refs, "ref-", null);
+		Files.writeString(tmp, sha + " " + entryKey(url, sha), StandardCharsets.UTF_8);
+		Files.move(tmp, refs.resolve(refKey(url)), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Optional<Path> entryDirectory(Path contentPath) {
+		Path content = contentPath.toAbsolutePath().normalize();
+		Path entryDir = content.getParent();
+		if (entryDir == null || !CONTENT.equals(content.getFileName().toString())
+				|| !entriesDirectory().toAbsolutePath().normalize().equals(entryDir.getParent())) {
+			return Optional.empty();
+		}
+		return Optional.of(entryDir);
+	}
+
+	private Path entriesDirectory() {
+		return directory.resolve(ENTRIES);
+	}
+
+	private static String entryKey(GitRepoUrlRef url, String sha) {
+		return hash(normalizeUrl(url), sha, normalizeSubPath(url));
+	}
+
+	private static String refKey(GitRepoUrlRef url) {
+		String ref = StringUtils.hasText(url.getRef()) ? url.getRef() : DEFAULT_REF;
+		return hash(normalizeUrl(url), ref, normalizeSubPath(url));
+	}
+
+	private static String hash(String... parts) {
+		return DigestUtils.md5DigestAsHex(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String normalizeUrl(GitRepoUrlRef url) {
+		String repoUrl = StringUtils.trimTrailingCharacter(url.getRepoUrl().toString(), '/');
+		if (repoUrl.endsWith(".git")) {
+			repoUrl = repoUrl.substring(0, repoUrl.length() - 4);
+		}
+		return repoUrl;
+	}
+
+	private static String normalizeSubPath(GitRepoUrlRef url) {
+		if (!StringUtils.hasText(url.getSubPath())) {
+			return "";
+		}
+		return StringUtils.trimTrailingCharacter(StringUtils.trimLeadingCharacter(url.getSubPath(), '/'), '/');
+	}
+
+	private static long size(Path path) throws IOException {
+		AtomicLong size = new AtomicLong();
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				size.addAndGet(attrs.size());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return size.get();
+	}
+
+	private static void setWritable(Path path, boolean writable) throws IOException {
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					file.toFile().setWritable(writable);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void delete(Path path) {
+		try {
+			if (Files.isDirectory(path)) {
+				// read-only files can't be deleted on some platforms
+				setWritable(path, true);
+			}
+			FileSystemUtils.deleteRecursively(path);
+		}
+		catch (IOException e) {
+			logger.warn("Not able to delete " + path, e);
+		}
+	}
+
+	private static void touch(Path path) {
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		}
+		catch (IOException e) {
+			logger.debug("Unable to touch " + path, e);
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static List<Path> list(Path dir) {
+		if (!Files.isDirectory(dir)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> paths = Files.list(dir)) {
+			return paths.collect(Collectors.toList());
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to list " + dir, e);
+		}
+	}
+
+	/**
+	 * Commit sha a ref was resolved to and a time when it was last validated.
+	 */
+	public static class CachedRef {
+
+		private final String sha;
+		private final long validated;
+
+		CachedRef(String sha, long validated) {
+			this.sha = sha;
+			this.validated = validated;
+		}
+
+		public String getSha() {
+			return sha;
+		}
+
+		public long getValidated() {
+			return validated;
+		}
+	}
+}
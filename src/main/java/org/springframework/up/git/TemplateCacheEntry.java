@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Metadata of a single entry in a {@link TemplateCache}.
+ *
+ * @author Janne Valkealahti
+ */
+public class TemplateCacheEntry {
+
+	private String url;
+	private String ref;
+	private String sha;
+	private String subPath;
+	private long size;
+	private long created;
+
+	@JsonIgnore
+	private String key;
+
+	@JsonIgnore
+	private long lastUsed;
+
+	public TemplateCacheEntry() {
+	}
+
+	public TemplateCacheEntry(String url, String ref, String sha, String subPath, long size, long created) {
+		this.url = url;
+		this.ref = ref;
+		this.sha = sha;
+		this.subPath = subPath;
+		this.size = size;
+		this.created = created;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public String getRef() {
+		return ref;
+	}
+
+	public void setRef(String ref) {
+		this.ref = ref;
+	}
+
+	public String getSha() {
+		return sha;
+	}
+
+	public void setSha(String sha) {
+		this.sha = sha;
+	}
+
+	public String getSubPath() {
+		return subPath;
+	}
+
+	public void setSubPath(String subPath) {
+		this.subPath = subPath;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public void setCreated(long created) {
+		this.created = created;
+	}
+
+	@JsonIgnore
+	public String getKey() {
+		return key;
+	}
+
+	@JsonIgnore
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	@JsonIgnore
+	public long getLastUsed() {
+		return lastUsed;
+	}
+
+	@JsonIgnore
+	public void setLastUsed(long lastUsed) {
+		this.lastUsed = lastUsed;
+	}
+
+	@Override
+	public String toString() {
+		return "TemplateCacheEntry{" +
+				"url='" + url + '\'' +
+				", ref='" + ref + '\'' +
+				", sha='" + sha + '\'' +
+				", subPath='" + subPath + '\'' +
+				", size=" + size +
+				", key='" + key + '\'' +
+				'}';
+	}
+}
@@ -16,7 +16,6 @@
 
 package org.springframework.up.git;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,9 +23,14 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.gitlab4j.api.Constants.ArchiveFormat;
 import org.gitlab4j.api.Constants.SortOrder;
@@ -37,19 +41,19 @@ import org.gitlab4j.api.models.Branch;
 import org.gitlab4j.api.models.Tag;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
-import org.kohsuke.github.GitHubBuilder;
-import org.rauschig.jarchivelib.Archiver;
-import org.rauschig.jarchivelib.ArchiverFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.stereotype.Component;
 import org.springframework.up.UpException;
 import org.springframework.up.config.TemplateRepositoryProperties;
+import org.springframework.up.config.UpCliProperties;
+import org.springframework.up.git.TemplateCache.CachedRef;
+import org.springframework.up.util.ArchiveUtils;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.util.ResourceUtils;
-import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
 /**
  * @author Thomas Risberg
@@ -59,176 +63,391 @@ public class UrlRepositoryService implements SourceRepositoryService {
 
 	private final Logger logger = LoggerFactory.getLogger(UrlRepositoryService.class);
 
+	private final static Pattern COMMIT_SHA = Pattern.compile("[0-9a-fA-F]{40}");
+
 	private final TemplateRepositoryProperties templateRepositoryProperties;
 
-	public UrlRepositoryService(TemplateRepositoryProperties templateRepositoryProperties) {
+	private final UpCliProperties upCliProperties;
+
+	private final TemplateCache templateCache;
+
+	private final GitClientRegistry gitClientRegistry;
+
+	private final CacheStats stats = new CacheStats();
+
+	public UrlRepositoryService(TemplateRepositoryProperties templateRepositoryProperties,
+			UpCliProperties upCliProperties, TemplateCache templateCache, GitClientRegistry gitClientRegistry) {
 		this.templateRepositoryProperties = templateRepositoryProperties;
+		this.upCliProperties = upCliProperties;
+		this.templateCache = templateCache;
+		this.gitClientRegistry = gitClientRegistry;
 	}
 
 	@Override
 	public Path retrieveRepositoryContents(String sourceRepoUrl) {
-		Path targetPath;
-		try {
-			targetPath = Files.createTempDirectory("source-repo-");
-		}
-		catch (IOException e) {
-			throw new UpException("Failed to create temp directory: " + e.getMessage(), e);
+		if (sourceRepoUrl.startsWith("file:")) {
+			Path contentPath = retrieveFileContents(sourceRepoUrl);
+			logger.debug("Source from " + sourceRepoUrl + " found from " + contentPath.toFile().getAbsolutePath());
+			return contentPath;
 		}
 
+		GitRepoUrlRef gitRepoUrlRef = GitRepoUrlRef.fromUriString(sourceRepoUrl);
+		if (upCliProperties.isOffline()) {
+			Path contentPath = retrieveOfflineContents(gitRepoUrlRef);
+			logger.debug("Source from " + sourceRepoUrl + " found offline from " + contentPath.toFile().getAbsolutePath());
+			return contentPath;
+		}
+		RemoteRepository remoteRepository = remoteRepository(gitRepoUrlRef);
 		Path contentPath;
-		if (sourceRepoUrl.startsWith("file:")) {
-			contentPath = retrieveFileContents(sourceRepoUrl, targetPath);
+		if (upCliProperties.getTemplateCache().isEnabled()) {
+			contentPath = retrieveCachedContents(gitRepoUrlRef, remoteRepository);
 		}
 		else {
-			GitRepoUrlRef gitRepoUrlRef = GitRepoUrlRef.fromUriString(sourceRepoUrl);
-			if (gitRepoUrlRef.getRepoUrl().toString().contains("github.com")) {
-				contentPath = retrieveGitHubRepositoryContents(gitRepoUrlRef, targetPath);
+			Path targetPath;
+			try {
+				targetPath = Files.createTempDirectory("source-repo-");
 			}
-			else {
-				contentPath = retrieveGitLabRepositoryContents(gitRepoUrlRef, targetPath);
+			catch (IOException e) {
+				throw new UpException("Failed to create temp directory: " + e.getMessage(), e);
 			}
+			// without a cache there's nothing to compare a sha against
+			String ref = StringUtils.hasText(gitRepoUrlRef.getRef()) ? gitRepoUrlRef.getRef() : null;
+			contentPath = remoteRepository.retrieve(ref, targetPath);
 		}
 		logger.debug("Source from " + sourceRepoUrl + " retrieved into " + contentPath.toFile().getAbsolutePath());
 		return contentPath;
 	}
 
 	/**
-	 * Retrieve contents from a file location.
+	 * Retrieve contents via a template cache. Ref which is not a commit sha is
+	 * revalidated by resolving it again to a commit sha and full content is only
+	 * downloaded if that sha is not already cached.
 	 */
-	private Path retrieveFileContents(String source, Path targetPath) {
+	private Path retrieveCachedContents(GitRepoUrlRef url, RemoteRepository remoteRepository) {
+		String sha = null;
+		Optional<CachedRef> cachedRef = templateCache.getRef(url);
+		if (cachedRef.isPresent()) {
+			if (!needsRevalidation(url, cachedRef.get())) {
+				Optional<Path> cachedPath = templateCache.lookup(url, cachedRef.get().getSha());
+				if (cachedPath.isPresent()) {
+					stats.hit(templateCache.getSize(cachedPath.get()));
+					logger.debug("Template cache hit for " + url + ", " + stats);
+					return cachedPath.get();
+				}
+			}
+			else {
+				sha = remoteRepository.resolveSha();
+				Optional<Path> cachedPath = templateCache.lookup(url, sha);
+				if (cachedPath.isPresent()) {
+					templateCache.updateRef(url, sha);
+					stats.revalidated(templateCache.getSize(cachedPath.get()));
+					logger.debug("Template cache revalidated " + url + " at " + sha + ", " + stats);
+					return cachedPath.get();
+				}
+			}
+		}
+
+		if (sha == null) {
+			sha = remoteRepository.resolveSha();
+			// same commit may already be cached via other ref
+			Optional<Path> cachedPath = templateCache.lookup(url, sha);
+			if (cachedPath.isPresent()) {
+				templateCache.updateRef(url, sha);
+				stats.revalidated(templateCache.getSize(cachedPath.get()));
+				logger.debug("Template cache revalidated " + url + " at " + sha + ", " + stats);
+				return cachedPath.get();
+			}
+		}
+
+		Path targetPath = templateCache.createStagingDirectory();
+		Path contentPath;
 		try {
-			File src = ResourceUtils.getFile(source);
-			File dest = targetPath.toFile();
-			logger.debug("Copying file resource: " + src + " to " + dest);
-			FileSystemUtils.copyRecursively(src, dest);
+			contentPath = templateCache.store(url, sha, remoteRepository.retrieve(sha, targetPath));
 		}
-		catch (IOException e) {
-			throw new UpException("Failed processing " + source, e);
+		finally {
+			try {
+				FileSystemUtils.deleteRecursively(targetPath);
+			}
+			catch (IOException e) {
+				logger.warn("Not able to delete staging directory " + targetPath, e);
+			}
 		}
-		return targetPath;
+		stats.miss();
+		logger.debug("Template cache miss for " + url + " at " + sha + ", " + stats);
+		return contentPath;
 	}
 
 	/**
-	 * Retrieve contents from a GitHub repository.
+	 * Retrieve contents from a template cache only. Cached ref is used as is
+	 * without revalidating it against a remote repository.
 	 */
-	private Path retrieveGitHubRepositoryContents(GitRepoUrlRef url, Path targetPath) {
+	private Path retrieveOfflineContents(GitRepoUrlRef url) {
+		if (!upCliProperties.getTemplateCache().isEnabled()) {
+			throw new UpException("Offline mode requires template cache to be enabled, not able to retrieve " + url);
+		}
+		Optional<Path> cachedPath = templateCache.lookup(url);
+		if (cachedPath.isEmpty()) {
+			throw new UpException("Offline mode, template " + url + " not found from a template cache");
+		}
+		stats.hit(templateCache.getSize(cachedPath.get()));
+		logger.debug("Template cache hit for " + url + ", " + stats);
+		return cachedPath.get();
+	}
 
-		try {
-			URI gitUri = new URI(url.getRepoUrl().toString());
-			String token = this.templateRepositoryProperties.getTokens().get(gitUri.getHost());
-			GitHub github;
-			if (token == null) {
-				github = GitHub.connectAnonymously();
-			}
-			else {
-				github = new GitHubBuilder().withOAuthToken(token).build();
-			}
-			String repo = gitUri.getPath().substring(1);
-			if (repo.endsWith(".git")) {
-				repo = repo.substring(0, repo.length() - 4);
-			}
-			String ref = url.getRef();
-			GHRepository ghRepository = github.getRepository(repo);
-			InputStream inputStream = ghRepository
-					.readTar((inputstream) -> new ByteArrayInputStream(StreamUtils.copyToByteArray(inputstream)), ref);
+	private boolean needsRevalidation(GitRepoUrlRef url, CachedRef cachedRef) {
+		if (StringUtils.hasText(url.getRef()) && COMMIT_SHA.matcher(url.getRef()).matches()) {
+			// exact commit can't change
+			return false;
+		}
+		Duration age = Duration.ofMillis(System.currentTimeMillis() - cachedRef.getValidated());
+		return age.compareTo(upCliProperties.getTemplateCache().getRevalidateAfter()) >= 0;
+	}
 
-			File targetFile = targetPath.toFile();
-			Archiver archiver = ArchiverFactory.createArchiver("tar", "gz");
-			try {
-				archiver.extract(inputStream, targetPath.toFile());
-			} catch (Exception e) {
-				throw new UpException(String.format("Extraction error to %s", targetFile.getAbsolutePath()), e);
+	RemoteRepository remoteRepository(GitRepoUrlRef url) {
+		if (url.getRepoUrl().toString().contains("github.com")) {
+			return new GitHubRemoteRepository(url);
+		}
+		return new GitLabRemoteRepository(url);
+	}
+
+	/**
+	 * Retrieve contents from a file location. Local files are already available
+	 * so these are used as is.
+	 */
+	private Path retrieveFileContents(String source) {
+		try {
+			File src = ResourceUtils.getFile(source);
+			if (!src.isDirectory()) {
+				throw new UpException("Directory " + src.getAbsolutePath() + " doesn't exist");
 			}
+			return src.toPath();
+		}
+		catch (IOException e) {
+			throw new UpException("Failed processing " + source, e);
+		}
+	}
 
-			Path unTar = Paths.get(targetPath.toFile().getAbsolutePath());
-			AtomicReference<Path> tarDir = new AtomicReference<>();
-			Files.list(unTar.toFile().toPath()).forEach((path) -> {
+	/**
+	 * Resolve a content path from an extracted archive having a single top level
+	 * directory and an optional sub path within it.
+	 */
+	private static Path extractedContentPath(GitRepoUrlRef url, Path targetPath) throws IOException {
+		AtomicReference<Path> tarDir = new AtomicReference<>();
+		try (Stream<Path> paths = Files.list(targetPath)) {
+			paths.forEach((path) -> {
 				if (path.toFile().isDirectory()) {
 					if (tarDir.get() != null) {
 						throw new UpException("Detected multiple directories '" + tarDir.get().toFile().getName()
-								+ "' and '" + path.toFile().getName() + " in downloaded zip file");
+								+ "' and '" + path.toFile().getName() + " in downloaded archive");
 					}
 					tarDir.set(path);
 				}
 			});
-			if (tarDir.get() == null) {
-				throw new UpException(
-						"Downloaded zip file not unzipped correctly into " + unTar.toFile().getAbsolutePath());
+		}
+		boolean hasSubPath = StringUtils.hasText(url.getSubPath());
+		if (tarDir.get() == null) {
+			if (hasSubPath) {
+				// nothing was extracted when sub path doesn't exist
+				throw new UpException("Sub path " + url.getSubPath() + " not found from " + url.getRepoUrl());
 			}
-			Path contentPath;
-			if (StringUtils.hasText(url.getSubPath())) {
-				contentPath = Paths.get(tarDir.get().toFile().getAbsolutePath(), url.getSubPath());
+			throw new UpException(
+					"Downloaded archive not extracted correctly into " + targetPath.toFile().getAbsolutePath());
+		}
+		Path contentPath = hasSubPath ? tarDir.get().resolve(url.getSubPath()) : tarDir.get();
+		if (!Files.isDirectory(contentPath)) {
+			throw new UpException("Sub path " + url.getSubPath() + " not found from " + url.getRepoUrl());
+		}
+		return contentPath;
+	}
+
+	private static String repositoryName(URI gitUri) {
+		String repo = gitUri.getPath().substring(1);
+		if (repo.endsWith(".git")) {
+			repo = repo.substring(0, repo.length() - 4);
+		}
+		return repo;
+	}
+
+	/**
+	 * Abstraction of a remote repository which can resolve a ref into a commit
+	 * sha and retrieve contents of a commit.
+	 */
+	interface RemoteRepository {
+
+		/**
+		 * Resolve a ref into a commit sha. Default branch is used if ref is not
+		 * defined.
+		 *
+		 * @return the commit sha
+		 */
+		String resolveSha();
+
+		/**
+		 * Retrieve contents of a commit or other ref. Default branch is used if
+		 * ref is not defined.
+		 *
+		 * @param sha the commit sha or other ref
+		 * @param targetPath the path to retrieve into
+		 * @return the path to retrieved contents
+		 */
+		Path retrieve(String sha, Path targetPath);
+	}
+
+	/**
+	 * Retrieve contents from a GitHub repository.
+	 */
+	private class GitHubRemoteRepository implements RemoteRepository {
+
+		private final GitRepoUrlRef url;
+		private GHRepository ghRepository;
+
+		GitHubRemoteRepository(GitRepoUrlRef url) {
+			this.url = url;
+		}
+
+		@Override
+		public String resolveSha() {
+			try {
+				GHRepository ghRepository = getRepository();
+				String ref = StringUtils.hasText(url.getRef()) ? url.getRef() : ghRepository.getDefaultBranch();
+				String sha = ghRepository.getCommit(ref).getSHA1();
+				logger.debug("Resolved ref " + ref + " of " + ghRepository.getFullName() + " to " + sha);
+				return sha;
 			}
-			else {
-				contentPath = tarDir.get();
+			catch (IOException | URISyntaxException e) {
+				throw new UpException("Failed processing " + url, e);
 			}
-			return contentPath;
 		}
-		catch (IOException | URISyntaxException e) {
-			throw new UpException("Failed processing " + url, e);
+
+		@Override
+		public Path retrieve(String sha, Path targetPath) {
+			try {
+				// extract while tarball is streamed from a connection, only sub path is written
+				getRepository().readTar((inputStream) -> {
+					ArchiveUtils.extractTarGz(inputStream, targetPath, url.getSubPath());
+					return targetPath;
+				}, sha);
+				return extractedContentPath(url, targetPath);
+			}
+			catch (IOException | URISyntaxException e) {
+				throw new UpException("Failed processing " + url, e);
+			}
+		}
+
+		private GHRepository getRepository() throws IOException, URISyntaxException {
+			if (ghRepository == null) {
+				URI gitUri = new URI(url.getRepoUrl().toString());
+				String token = templateRepositoryProperties.getTokens().get(gitUri.getHost());
+				GitHub github = gitClientRegistry.getGitHub(gitUri.getHost(), token);
+				ghRepository = github.getRepository(repositoryName(gitUri));
+			}
+			return ghRepository;
 		}
 	}
 
 	/**
 	 * Retrieve contents from a GitLab repository.
 	 */
-	private Path retrieveGitLabRepositoryContents(GitRepoUrlRef url, Path targetPath) {
-		try {
-			URI gitUri = new URI(url.getRepoUrl().toString());
-			String token = this.templateRepositoryProperties.getTokens().get(gitUri.getHost());
-			if (token == null) {
-				throw new UpException("Access token not provided for " + gitUri);
-			}
-			GitLabApi gitLabApi = new GitLabApi(gitUri.getScheme() + "://" + gitUri.getHost(), token);
-			String repo = gitUri.getPath().substring(1);
-			if (repo.endsWith(".git")) {
-				repo = repo.substring(0, repo.length() - 4);
-			}
-
-			String refSha = null;
-			if (StringUtils.hasText(url.getRef())) {
-				List<Branch> branches = gitLabApi.getRepositoryApi().getBranches(repo, url.getRef());
-				if (branches.size() == 1) {
-					refSha = branches.get(0).getCommit().getId();
+	private class GitLabRemoteRepository implements RemoteRepository {
+
+		private final GitRepoUrlRef url;
+		private GitLabApi gitLabApi;
+		private String repo;
+
+		GitLabRemoteRepository(GitRepoUrlRef url) {
+			this.url = url;
+		}
+
+		@Override
+		public String resolveSha() {
+			try {
+				GitLabApi gitLabApi = getGitLabApi();
+				String ref = url.getRef();
+				String refSha;
+				if (!StringUtils.hasText(ref)) {
+					ref = gitLabApi.getProjectApi().getProject(repo).getDefaultBranch();
+					refSha = gitLabApi.getRepositoryApi().getBranch(repo, ref).getCommit().getId();
 				}
 				else {
-					List<Tag> tags = gitLabApi.getTagsApi().getTags(repo, TagOrderBy.NAME, SortOrder.ASC, url.getRef());
-					if (tags.size() == 1) {
-						refSha = tags.get(0).getCommit().getId();
+					List<Branch> branches = gitLabApi.getRepositoryApi().getBranches(repo, ref);
+					if (branches.size() == 1) {
+						refSha = branches.get(0).getCommit().getId();
 					}
 					else {
-						throw new UpException("Not able to find ref " + url.getRef() + " for " + repo);
+						List<Tag> tags = gitLabApi.getTagsApi().getTags(repo, TagOrderBy.NAME, SortOrder.ASC, ref);
+						if (tags.size() == 1) {
+							refSha = tags.get(0).getCommit().getId();
+						}
+						else {
+							throw new UpException("Not able to find ref " + ref + " for " + repo);
+						}
 					}
 				}
+				logger.debug("Resolved ref " + ref + " of " + repo + " to " + refSha);
+				return refSha;
 			}
-			File tarfile = gitLabApi.getRepositoryApi().getRepositoryArchive(repo, refSha, targetPath.toFile(),
-					ArchiveFormat.TAR_GZ);
-			logger.debug("Wrote GitLab Repo " + repo + " to " + tarfile.getAbsolutePath());
-
-			File targetFile = targetPath.toFile();
-			Archiver archiver = ArchiverFactory.createArchiver("tar", "gz");
-			try {
-				archiver.extract(tarfile, targetPath.toFile());
-			} catch (Exception e) {
-				throw new UpException(String.format("Extraction error to %s", targetFile.getAbsolutePath()), e);
+			catch (URISyntaxException | GitLabApiException e) {
+				throw new UpException("Failed processing " + url, e);
 			}
+		}
 
-			String zipDirName = tarfile.getName().substring(0, tarfile.getName().indexOf('.'));
-			if (!tarfile.delete()) {
-				logger.warn("Not able to delete zip file " + tarfile.getAbsolutePath());
-			}
-			Path contentPath;
-			if (StringUtils.hasText(url.getSubPath())) {
-				contentPath = Paths.get(targetPath.toFile().getAbsolutePath(), zipDirName, url.getSubPath());
+		@Override
+		public Path retrieve(String sha, Path targetPath) {
+			try {
+				try (InputStream inputStream = getGitLabApi().getRepositoryApi().getRepositoryArchive(repo, sha,
+						ArchiveFormat.TAR_GZ)) {
+					ArchiveUtils.extractTarGz(inputStream, targetPath, url.getSubPath());
+				}
+				logger.debug("Extracted GitLab Repo " + repo + " into " + targetPath.toFile().getAbsolutePath());
+				return extractedContentPath(url, targetPath);
 			}
-			else {
-				contentPath = Paths.get(targetPath.toFile().getAbsolutePath(), zipDirName);
+			catch (IOException | URISyntaxException | GitLabApiException e) {
+				throw new UpException("Failed processing " + url, e);
 			}
-			return contentPath;
 		}
-		catch (URISyntaxException | GitLabApiException e) {
-			throw new UpException("Failed processing " + url, e);
+
+		private GitLabApi getGitLabApi() throws URISyntaxException {
+			if (gitLabApi == null) {
+				URI gitUri = new URI(url.getRepoUrl().toString());
+				String token = templateRepositoryProperties.getTokens().get(gitUri.getHost());
+				if (token == null) {
+					throw new UpException("Access token not provided for " + gitUri);
+				}
+				gitLabApi = gitClientRegistry.getGitLabApi(gitUri.getScheme(), gitUri.getHost(), token);
+				repo = repositoryName(gitUri);
+			}
+			return gitLabApi;
 		}
 	}
 
+	/**
+	 * Template cache statistics kept for a lifetime of this service.
+	 */
+	private static class CacheStats {
+
+		private final AtomicInteger hits = new AtomicInteger();
+		private final AtomicInteger revalidated = new AtomicInteger();
+		private final AtomicInteger misses = new AtomicInteger();
+		private final AtomicLong savedBytes = new AtomicLong();
+
+		void hit(long size) {
+			hits.incrementAndGet();
+			savedBytes.addAndGet(size);
+		}
+
+		void revalidated(long size) {
+			revalidated.incrementAndGet();
+			savedBytes.addAndGet(size);
+		}
+
+		void miss() {
+			misses.incrementAndGet();
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", revalidated=" + revalidated + ", misses=" + misses + ", saved="
+					+ DataSize.ofBytes(savedBytes.get()).toKilobytes() + "KB";
+		}
+	}
 }
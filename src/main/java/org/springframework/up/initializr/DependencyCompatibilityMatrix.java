@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.initializr;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import io.spring.initializr.generator.version.InvalidVersionException;
+import io.spring.initializr.generator.version.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.initializr.model.Dependency;
+import org.springframework.up.initializr.model.IdName;
+import org.springframework.up.initializr.model.Metadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * Compatibility of all metadata dependencies with boot versions, as a bitset
+ * per boot version where a set bit is a compatible dependency in a metadata
+ * order. Boot versions known by metadata are computed up front, any other
+ * version is computed when first asked and then kept. A metadata boot version
+ * which can't be parsed is compatible with nothing instead of failing all
+ * other versions.
+ *
+ * @author Janne Valkealahti
+ */
+public class DependencyCompatibilityMatrix {
+
+	private final static Logger log = LoggerFactory.getLogger(DependencyCompatibilityMatrix.class);
+
+	private final List<Dependency> dependencies;
+
+	private final BitSet all;
+
+	private final Map<String, BitSet> compatible = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a matrix for metadata.
+	 *
+	 * @param metadata the metadata
+	 */
+	public DependencyCompatibilityMatrix(Metadata metadata) {
+		this.dependencies = Collections.unmodifiableList(metadata.getDependencies().getValues().stream()
+				.flatMap(dc -> dc.getValues().stream())
+				.collect(Collectors.toList()));
+		this.all = new BitSet(dependencies.size());
+		this.all.set(0, dependencies.size());
+		for (IdName bootVersion : metadata.getBootVersion().getValues()) {
+			if (StringUtils.hasText(bootVersion.getId())) {
+				compatible.put(bootVersion.getId(), computeOrNone(bootVersion.getId()));
+			}
+		}
+	}
+
+	/**
+	 * Gets all dependencies in a metadata order, which is an order of bits.
+	 *
+	 * @return the dependencies
+	 */
+	public List<Dependency> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * Gets dependencies compatible with a boot version. Without a version all
+	 * dependencies are compatible.
+	 *
+	 * @param bootVersion the boot version
+	 * @return the bitset of compatible dependencies, not to be modified
+	 */
+	public BitSet getCompatible(String bootVersion) {
+		if (!StringUtils.hasText(bootVersion)) {
+			return all;
+		}
+		return compatible.computeIfAbsent(bootVersion, this::compute);
+	}
+
+	/**
+	 * Gets dependencies compatible with a boot version in a metadata order.
+	 *
+	 * @param bootVersion the boot version
+	 * @return the compatible dependencies
+	 */
+	public List<Dependency> getCompatibleDependencies(String bootVersion) {
+		BitSet bits = getCompatible(bootVersion);
+		return bits.stream().mapToObj(dependencies::get).collect(Collectors.toList());
+	}
+
+	private BitSet computeOrNone(String bootVersion) {
+		try {
+			return compute(bootVersion);
+		}
+		catch (InvalidVersionException e) {
+			log.debug("Not able to compute compatibility for boot version {}", bootVersion, e);
+			return new BitSet(dependencies.size());
+		}
+	}
+
+	private BitSet compute(String bootVersion) {
+		Version version = InitializrUtils.parseVersion(bootVersion);
+		BitSet bits = new BitSet(dependencies.size());
+		for (int i = 0; i < dependencies.size(); i++) {
+			if (InitializrUtils.isDependencyCompatible(dependencies.get(i), version)) {
+				bits.set(i);
+			}
+		}
+		return bits;
+	}
+}
@@ -15,17 +15,35 @@
  */
 package org.springframework.up.initializr;
 
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
+import org.springframework.up.UpException;
+import org.springframework.up.initializr.InitializrMetadataCache.CachedMetadata;
 import org.springframework.up.initializr.model.Metadata;
+import org.springframework.up.util.ArchiveUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -48,6 +66,14 @@ public interface InitializrClient {
 	 */
 	Metadata getMetadata();
 
+	/**
+	 * Get compatibility of metadata dependencies with boot versions, computed
+	 * once when metadata is loaded.
+	 *
+	 * @return the dependency compatibility matrix
+	 */
+	DependencyCompatibilityMatrix getDependencyCompatibility();
+
 	/**
 	 * Get info about a system.
 
@@ -56,13 +82,14 @@ public interface InitializrClient {
 	String info();
 
 	/**
-	 * Generate a project as a tgz file and return a path to it.
+	 * Generate a project and extract it into a directory. Generated tgz is
+	 * extracted while it's received without writing it into a file first.
 	 *
-	 * @return the path to generated tgz project file
+	 * @param directory the directory to extract into
 	 */
-	Path generate(String projectType, String languageType, String bootVersion, List<String> dependencies,
-			String version, String groupId, String artifact, String name, String description, String packageName,
-			String packaging, String javaVersion);
+	void generate(Path directory, String projectType, String languageType, String bootVersion,
+			List<String> dependencies, String version, String groupId, String artifact, String name,
+			String description, String packageName, String packaging, String javaVersion);
 
 	/**
 	 * Interface for a initializr client builder.
@@ -77,6 +104,24 @@ public interface InitializrClient {
 		 */
 		Builder target(String baseUrl);
 
+		/**
+		 * Sets an offline mode where a target is contacted only if it's a mirror,
+		 * i.e. not a public initializr, and a public one fails fast.
+		 *
+		 * @param offline the offline flag
+		 * @return the builder
+		 */
+		Builder offline(boolean offline);
+
+		/**
+		 * Sets a disk cache for metadata. Fresh cached metadata is used as is and
+		 * stale one is used while it's refreshed in a background.
+		 *
+		 * @param metadataCache the metadata cache
+		 * @return the builder
+		 */
+		Builder metadataCache(InitializrMetadataCache metadataCache);
+
 		/**
 		 * Builds an initializr client.
 		 *
@@ -98,6 +143,8 @@ public interface InitializrClient {
 	public static class DefaultBuilder implements Builder {
 
 		private String baseUrl;
+		private boolean offline;
+		private InitializrMetadataCache metadataCache;
 		private WebClient.Builder webClientBuilder;
 
 		DefaultBuilder(WebClient.Builder webClientBuilder) {
@@ -109,31 +156,63 @@ public interface InitializrClient {
 			return this;
 		}
 
+		public Builder offline(boolean offline) {
+			this.offline = offline;
+			return this;
+		}
+
+		public Builder metadataCache(InitializrMetadataCache metadataCache) {
+			this.metadataCache = metadataCache;
+			return this;
+		}
+
 		public InitializrClient build() {
 			WebClient client = webClientBuilder
 					.baseUrl(this.baseUrl)
 					.build();
-			return new DefaultInitializrClient(client, this.baseUrl);
+			return new DefaultInitializrClient(client, this.baseUrl, this.offline, this.metadataCache);
 		}
 	}
 
 	public static class DefaultInitializrClient implements InitializrClient {
 
+		private final static Logger log = LoggerFactory.getLogger(DefaultInitializrClient.class);
 		private final static MediaType INITIALIZER_MEDIA_TYPE = new MediaType("application", "vnd.initializr.v2.2+json");
+		private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+				.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		private final static int STARTER_PREFETCH = 16;
+		private final static Set<String> PUBLIC_HOSTS = Collections.singleton("start.spring.io");
 		private WebClient client;
 		private Metadata metadata;
+		private DependencyCompatibilityMatrix dependencyCompatibility;
 		private AtomicBoolean connected = new AtomicBoolean(false);
 		private String baseUrl;
+		private boolean offline;
+		private InitializrMetadataCache metadataCache;
 
 		public DefaultInitializrClient(WebClient client, String baseUrl) {
+			this(client, baseUrl, false, null);
+		}
+
+		public DefaultInitializrClient(WebClient client, String baseUrl, boolean offline,
+				InitializrMetadataCache metadataCache) {
 			this.client = client;
 			this.baseUrl = baseUrl;
+			this.offline = offline;
+			this.metadataCache = metadataCache;
 		}
 
 		@Override
 		public void connect() {
 			if (connected.compareAndSet(false, true)) {
-				updateMetadata();
+				try {
+					updateMetadata();
+				}
+				catch (RuntimeException e) {
+					// allow retry instead of returning empty metadata
+					connected.set(false);
+					throw e;
+				}
 			}
 		}
 
@@ -145,46 +224,154 @@ public interface InitializrClient {
 			return metadata;
 		}
 
+		@Override
+		public DependencyCompatibilityMatrix getDependencyCompatibility() {
+			if (!connected.get()) {
+				connect();
+			}
+			return dependencyCompatibility;
+		}
+
 		@Override
 		public String info() {
 			return baseUrl;
 		}
 
 		@Override
-		public Path generate(String projectType, String languageType, String bootVersion, List<String> dependencies,
-				String version, String groupId, String artifact, String name, String description, String packageName, String packaging,
-				String javaVersion) {
-			try {
-				Path tmp = Files.createTempFile("initializrcli", null);
-				Flux<DataBuffer> dataBuffer = client.get()
-						.uri(uriBuilder -> uriBuilder.path("starter.tgz")
-								.queryParam("type", projectType)
-								.queryParam("dependencies", StringUtils.collectionToCommaDelimitedString(dependencies))
-								.queryParam("packaging", packaging)
-								.queryParam("javaVersion", javaVersion)
-								.queryParam("language", languageType)
-								.queryParam("bootVersion", bootVersion)
-								.queryParam("version", version)
-								.queryParam("groupId", groupId)
-								.queryParam("artifactId", artifact)
-								.queryParam("name", name)
-								.queryParam("description", description)
-								.queryParam("packageName", packageName)
-								.build())
-						.accept(MediaType.ALL)
-						.retrieve().bodyToFlux(DataBuffer.class);
-				DataBufferUtils.write(dataBuffer, tmp).block();
-				return tmp;
-			} catch (Exception e) {
-				throw new RuntimeException(e);
+		public void generate(Path directory, String projectType, String languageType, String bootVersion,
+				List<String> dependencies, String version, String groupId, String artifact, String name,
+				String description, String packageName, String packaging, String javaVersion) {
+			checkOnline("generate a project");
+			Flux<DataBuffer> dataBuffer = starter(projectType, languageType, bootVersion, dependencies, version,
+					groupId, artifact, name, description, packageName, packaging, javaVersion)
+				.doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+			// blocking stream prefetches only few buffers, closing it cancels a request
+			try (Stream<DataBuffer> buffers = dataBuffer.toStream(STARTER_PREFETCH)) {
+				Iterator<DataBuffer> iterator = buffers.iterator();
+				Enumeration<InputStream> inputStreams = new Enumeration<InputStream>() {
+
+					@Override
+					public boolean hasMoreElements() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public InputStream nextElement() {
+						// buffer is released when sequence has read it
+						return iterator.next().asInputStream(true);
+					}
+				};
+				ArchiveUtils.extractTarGz(new SequenceInputStream(inputStreams), directory);
+			}
+			catch (UpException e) {
+				throw e;
 			}
+			catch (RuntimeException e) {
+				throw new UpException("Failed to generate project from " + baseUrl, e);
+			}
+		}
+
+		private Flux<DataBuffer> starter(String projectType, String languageType, String bootVersion,
+				List<String> dependencies, String version, String groupId, String artifact, String name,
+				String description, String packageName, String packaging, String javaVersion) {
+			return client.get()
+					.uri(uriBuilder -> uriBuilder.path("starter.tgz")
+							.queryParam("type", projectType)
+							.queryParam("dependencies", StringUtils.collectionToCommaDelimitedString(dependencies))
+							.queryParam("packaging", packaging)
+							.queryParam("javaVersion", javaVersion)
+							.queryParam("language", languageType)
+							.queryParam("bootVersion", bootVersion)
+							.queryParam("version", version)
+							.queryParam("groupId", groupId)
+							.queryParam("artifactId", artifact)
+							.queryParam("name", name)
+							.queryParam("description", description)
+							.queryParam("packageName", packageName)
+							.build())
+					.accept(MediaType.ALL)
+					.retrieve().bodyToFlux(DataBuffer.class);
 		}
 
 		private void updateMetadata() {
-			this.metadata = client.get()
+			if (metadataCache == null) {
+				checkOnline("get metadata");
+				setMetadata(client.get()
+					.accept(INITIALIZER_MEDIA_TYPE)
+					.retrieve()
+					.toEntity(Metadata.class).block().getBody());
+				return;
+			}
+			Optional<CachedMetadata> cached = metadataCache.read(baseUrl);
+			Metadata cachedMetadata = cached.map(c -> parseMetadata(c.getJson())).orElse(null);
+			if (cachedMetadata != null) {
+				setMetadata(cachedMetadata);
+				if (cached.get().isStale() && !isOffline()) {
+					// serve stale metadata now and have a fresh one for a next time
+					log.debug("Refreshing stale metadata from {}", baseUrl);
+					fetchMetadata().subscribe(json -> metadataCache.write(baseUrl, json),
+							e -> log.debug("Not able to refresh metadata from {}", baseUrl, e));
+				}
+				return;
+			}
+			checkOnline("get metadata");
+			String json = fetchMetadata().block();
+			Metadata fetched = parseMetadata(json);
+			if (fetched == null) {
+				throw new UpException("Not able to parse metadata from " + baseUrl);
+			}
+			setMetadata(fetched);
+			metadataCache.write(baseUrl, json);
+		}
+
+		private void setMetadata(Metadata metadata) {
+			this.dependencyCompatibility = new DependencyCompatibilityMatrix(metadata);
+			this.metadata = metadata;
+		}
+
+		private Mono<String> fetchMetadata() {
+			return client.get()
 				.accept(INITIALIZER_MEDIA_TYPE)
 				.retrieve()
-				.toEntity(Metadata.class).block().getBody();
+				.bodyToMono(String.class);
+		}
+
+		private static Metadata parseMetadata(String json) {
+			try {
+				return OBJECT_MAPPER.readValue(json, Metadata.class);
+			}
+			catch (JsonProcessingException e) {
+				log.debug("Not able to parse metadata", e);
+				return null;
+			}
+		}
+
+		private boolean isOffline() {
+			return offline && isPublicHost(baseUrl);
+		}
+
+		/**
+		 * Fail fast in an offline mode if target is a public initializr. Any
+		 * other target is a mirror reachable without internet access, like one on
+		 * a local host or on an internal network. Host is checked by name only as
+		 * resolving it could hang without a network.
+		 */
+		private void checkOnline(String operation) {
+			if (isOffline()) {
+				throw new UpException("Offline mode, not able to " + operation + " from " + baseUrl
+						+ ", configure a base url of an initializr mirror");
+			}
+		}
+
+		private static boolean isPublicHost(String baseUrl) {
+			String host;
+			try {
+				host = URI.create(baseUrl).getHost();
+			}
+			catch (IllegalArgumentException e) {
+				return false;
+			}
+			return host != null && PUBLIC_HOSTS.contains(host.toLowerCase(Locale.ROOT));
 		}
 	}
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.initializr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * Disk cache for raw initializr metadata documents, one file per base url.
+ * Document is kept as received so that it's parsed the same way as a fresh
+ * response, and entry age is a modification time of a file.
+ *
+ * @author Janne Valkealahti
+ */
+public class InitializrMetadataCache {
+
+	private final static Logger log = LoggerFactory.getLogger(InitializrMetadataCache.class);
+
+	private final Path cacheDir;
+
+	private final Duration ttl;
+
+	/**
+	 * Creates a new metadata cache.
+	 *
+	 * @param cacheDir the cache directory
+	 * @param ttl the time after which an entry is stale
+	 */
+	public InitializrMetadataCache(Path cacheDir, Duration ttl) {
+		this.cacheDir = cacheDir;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Reads a cached metadata document for a base url.
+	 *
+	 * @param baseUrl the base url
+	 * @return the cached metadata if exists
+	 */
+	public Optional<CachedMetadata> read(String baseUrl) {
+		Path file = file(baseUrl);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try {
+			long modified = Files.getLastModifiedTime(file).toMillis();
+			String json = Files.readString(file, StandardCharsets.UTF_8);
+			Duration age = Duration.ofMillis(System.currentTimeMillis() - modified);
+			return Optional.of(new CachedMetadata(json, age.compareTo(ttl) >= 0));
+		}
+		catch (IOException e) {
+			log.debug("Not able to read cached metadata from {}", file, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes a metadata document for a base url. Document is first written into
+	 * a temp file and then moved in place so that a concurrent reader or an
+	 * interrupted write never sees a partial document.
+	 *
+	 * @param baseUrl the base url
+	 * @param json the metadata document
+	 */
+	public void write(String baseUrl, String json) {
+		Path file = file(baseUrl);
+		try {
+			Files.createDirectories(cacheDir);
+			Path tmp = Files.createTempFile(cacheDir, "metadata-", ".tmp");
+			try {
+				Files.writeString(tmp, json, StandardCharsets.UTF_8);
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally {
+				Files.deleteIfExists(tmp);
+			}
+			log.debug("Cached metadata of {} into {}", baseUrl, file);
+		}
+		catch (IOException e) {
+			log.debug("Not able to cache metadata into {}", file, e);
+		}
+	}
+
+	private Path file(String baseUrl) {
+		return cacheDir.resolve(DigestUtils.md5DigestAsHex(baseUrl.getBytes(StandardCharsets.UTF_8)) + ".json");
+	}
+
+	/**
+	 * Cached metadata document.
+	 */
+	public static class CachedMetadata {
+
+		private final String json;
+		private final boolean stale;
+
+		CachedMetadata(String json, boolean stale) {
+			this.json = json;
+			this.stale = stale;
+		}
+
+		public String getJson() {
+			return json;
+		}
+
+		public boolean isStale() {
+			return stale;
+		}
+	}
+}
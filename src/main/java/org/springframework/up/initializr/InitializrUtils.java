@@ -16,6 +16,8 @@
 package org.springframework.up.initializr;
 
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.spring.initializr.generator.version.Version;
 import io.spring.initializr.generator.version.VersionParser;
@@ -28,12 +30,41 @@ public abstract class InitializrUtils {
 
 	private final static VersionParser VERSION_PARSER_INSTANCE = new VersionParser(Collections.emptyList());
 
+	/**
+	 * Parsed ranges by their text. Metadata has only a handful of distinct
+	 * ranges and each is checked against every boot version being selected.
+	 */
+	private final static Map<String, VersionRange> VERSION_RANGES = new ConcurrentHashMap<>();
+
 	public static boolean isDependencyCompatible(Dependency dependency, String version) {
-		if (!StringUtils.hasText(version) || !StringUtils.hasText(dependency.getVersionRange())) {
+		return isDependencyCompatible(dependency, parseVersion(version));
+	}
+
+	/**
+	 * Checks compatibility against an already parsed version, meant to be used
+	 * when checking all dependencies against a same version.
+	 */
+	public static boolean isDependencyCompatible(Dependency dependency, Version version) {
+		if (version == null) {
 			return true;
 		}
-		Version parsedVersion = VERSION_PARSER_INSTANCE.parse(version);
-		VersionRange parsedRange = VERSION_PARSER_INSTANCE.parseRange(dependency.getVersionRange());
-		return parsedRange.match(parsedVersion);
+		VersionRange parsedRange = parseVersionRange(dependency.getVersionRange());
+		return parsedRange == null || parsedRange.match(version);
+	}
+
+	/**
+	 * Parses a version, {@code null} if there's no version.
+	 */
+	public static Version parseVersion(String version) {
+		return StringUtils.hasText(version) ? VERSION_PARSER_INSTANCE.parse(version) : null;
+	}
+
+	/**
+	 * Parses a version range once and then reuses it, {@code null} if there's
+	 * no range.
+	 */
+	public static VersionRange parseVersionRange(String range) {
+		return StringUtils.hasText(range) ? VERSION_RANGES.computeIfAbsent(range, VERSION_PARSER_INSTANCE::parseRange)
+				: null;
 	}
 }
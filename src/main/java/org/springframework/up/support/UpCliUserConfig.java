@@ -92,6 +92,16 @@ public class UpCliUserConfig {
 		}
 	}
 
+	/**
+	 * Gets a base directory where all user level settings are stored. Other
+	 * components can use it to keep their own persistent state like caches.
+	 *
+	 * @return the config directory
+	 */
+	public Path getConfigDir() {
+		return hostsConfigFile.getConfigDir();
+	}
+
 	/**
 	 * Gets hosts.
 	 *
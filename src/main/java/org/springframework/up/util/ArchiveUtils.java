@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.UpException;
+import org.springframework.util.StringUtils;
+
+/**
+ * Utilities for extracting archives.
+ *
+ * @author Janne Valkealahti
+ */
+public abstract class ArchiveUtils {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArchiveUtils.class);
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final static int OWNER_EXECUTE = 0100;
+
+	/**
+	 * Extracts a {@code tar.gz} stream into a target directory. Entries are
+	 * written as those are read from a stream, so nothing else than a fixed size
+	 * buffer is kept in memory regardless of an archive size.
+	 *
+	 * @param inputStream the gzipped tar stream
+	 * @param targetPath the target directory
+	 */
+	public static void extractTarGz(InputStream inputStream, Path targetPath) {
+		extractTarGz(inputStream, targetPath, null);
+	}
+
+	/**
+	 * Extracts a {@code tar.gz} stream into a target directory writing only
+	 * entries under {@code <root>/<subPath>/} where root is a single top level
+	 * directory of an archive, as in archives created by GitHub and GitLab.
+	 * Bodies of other entries are skipped without writing those to a disk.
+	 *
+	 * @param inputStream the gzipped tar stream
+	 * @param targetPath the target directory
+	 * @param subPath the sub path to extract, everything if empty
+	 */
+	public static void extractTarGz(InputStream inputStream, Path targetPath, String subPath) {
+		Path target = targetPath.toAbsolutePath().normalize();
+		String filter = normalizeSubPath(subPath);
+		try (TarArchiveInputStream tar = new TarArchiveInputStream(
+				new GzipCompressorInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE)))) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int skipped = 0;
+			TarArchiveEntry entry;
+			while ((entry = tar.getNextTarEntry()) != null) {
+				if (filter != null && !isUnderSubPath(entry.getName(), filter)) {
+					// body is skipped by a next getNextTarEntry
+					skipped++;
+					continue;
+				}
+				Path entryPath = target.resolve(entry.getName()).normalize();
+				if (!entryPath.startsWith(target)) {
+					throw new UpException("Archive entry " + entry.getName() + " is outside of " + target);
+				}
+				if (entry.isDirectory()) {
+					Files.createDirectories(entryPath);
+				}
+				else if (entry.isFile()) {
+					Files.createDirectories(entryPath.getParent());
+					try (OutputStream out = Files.newOutputStream(entryPath)) {
+						int read;
+						while ((read = tar.read(buffer)) != -1) {
+							out.write(buffer, 0, read);
+						}
+					}
+					if ((entry.getMode() & OWNER_EXECUTE) != 0) {
+						entryPath.toFile().setExecutable(true);
+					}
+				}
+				else {
+					logger.debug("Skipping unsupported archive entry {}", entry.getName());
+				}
+			}
+			if (filter != null) {
+				logger.debug("Skipped {} archive entries outside of sub path {}", skipped, filter);
+			}
+		}
+		catch (IOException e) {
+			throw new UpException(String.format("Extraction error to %s", target), e);
+		}
+	}
+
+	/**
+	 * Checks if an entry name is a sub path itself or under it when a first
+	 * path segment, a root directory, is ignored.
+	 */
+	private static boolean isUnderSubPath(String name, String subPath) {
+		int index = name.indexOf('/');
+		if (index < 0) {
+			return false;
+		}
+		String path = name.substring(index + 1);
+		if (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path.equals(subPath) || path.startsWith(subPath + "/");
+	}
+
+	private static String normalizeSubPath(String subPath) {
+		if (!StringUtils.hasText(subPath)) {
+			return null;
+		}
+		String path = subPath.replace('\\', '/');
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return StringUtils.hasText(path) ? path : null;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.up.UpException;
+
+/**
+ * Reads coordinates of a project from its build files. A {@code pom.xml} is
+ * preferred and read with a streaming parser, otherwise {@code settings.gradle} gives a name and
+ * {@code build.gradle} a group and a version, kotlin variants included.
+ *
+ * Gradle files are read line by line only until all top level coordinates
+ * have been found.
+ *
+ * @author Janne Valkealahti
+ */
+public class BuildMetadataReader {
+
+	private final static String POM = "pom.xml";
+
+	private final static String[] SETTINGS = { "settings.gradle", "settings.gradle.kts" };
+
+	private final static String[] BUILDS = { "build.gradle", "build.gradle.kts" };
+
+	private final static String SAVED_FILE = "project-info.properties";
+
+	private final static Pattern ROOT_PROJECT_NAME = assignment("rootProject\\.name");
+
+	private final static Pattern GROUP = assignment("group");
+
+	private final static Pattern VERSION = assignment("version");
+
+	/**
+	 * Reads coordinates of an indexed project.
+	 *
+	 * @param index the project index
+	 * @return the project info, empty if there are no known build files
+	 */
+	public Optional<ProjectInfo> read(ProjectIndex index) {
+		Path directory = index.getRoot();
+		Set<String> buildFiles = index.getBuildFiles();
+		if (buildFiles.contains(POM)) {
+			return Optional.of(new PomReader().readCoordinates(directory.resolve(POM).toFile()));
+		}
+		String name = null;
+		String group = null;
+		String version = null;
+		boolean found = false;
+		for (String settings : SETTINGS) {
+			if (buildFiles.contains(settings)) {
+				found = true;
+				String[] values = scan(directory.resolve(settings), ROOT_PROJECT_NAME);
+				name = values[0];
+				break;
+			}
+		}
+		for (String build : BUILDS) {
+			if (buildFiles.contains(build)) {
+				found = true;
+				String[] values = scan(directory.resolve(build), GROUP, VERSION);
+				group = values[0];
+				version = values[1];
+				break;
+			}
+		}
+		// gradle project is published with its root project name
+		return found ? Optional.of(new ProjectInfo(name, group, name, version)) : Optional.empty();
+	}
+
+	/**
+	 * Saves project info into a directory so that it can be read back without
+	 * build files.
+	 *
+	 * @param projectInfo the project info
+	 * @param directory the directory
+	 */
+	public static void save(Optional<ProjectInfo> projectInfo, Path directory) {
+		Properties properties = new Properties();
+		projectInfo.ifPresent(info -> {
+			setIfNotNull(properties, "name", info.getName());
+			setIfNotNull(properties, "groupId", info.getGroupId());
+			setIfNotNull(properties, "artifactId", info.getArtifactId());
+			setIfNotNull(properties, "version", info.getVersion());
+		});
+		try (Writer writer = Files.newBufferedWriter(directory.resolve(SAVED_FILE), StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to save project info into " + directory, e);
+		}
+	}
+
+	/**
+	 * Loads project info saved with {@link #save(Optional, Path)}.
+	 *
+	 * @param directory the directory
+	 * @return the project info, empty if nothing was known about a project
+	 */
+	public static Optional<ProjectInfo> load(Path directory) {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(directory.resolve(SAVED_FILE), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to load project info from " + directory, e);
+		}
+		if (properties.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(new ProjectInfo(properties.getProperty("name"), properties.getProperty("groupId"),
+				properties.getProperty("artifactId"), properties.getProperty("version")));
+	}
+
+	/**
+	 * Scans top level assignments of a gradle script returning values in a
+	 * pattern order, stopping as soon as all of them have been found.
+	 */
+	private static String[] scan(Path file, Pattern... patterns) {
+		String[] values = new String[patterns.length];
+		int remaining = patterns.length;
+		int depth = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while (remaining > 0 && (line = reader.readLine()) != null) {
+				if (depth == 0) {
+					for (int i = 0; i < patterns.length; i++) {
+						Matcher matcher = patterns[i].matcher(line);
+						if (values[i] == null && matcher.find()) {
+							values[i] = matcher.group(1);
+							remaining--;
+						}
+					}
+				}
+				depth = Math.max(0, depth + braces(line));
+			}
+		}
+		catch (IOException e) {
+			throw new UpException("Failed to read " + file, e);
+		}
+		return values;
+	}
+
+	private static int braces(String line) {
+		int count = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '{') {
+				count++;
+			}
+			else if (c == '}') {
+				count--;
+			}
+		}
+		return count;
+	}
+
+	private static Pattern assignment(String property) {
+		return Pattern.compile("^\\s*" + property + "\\s*=\\s*['\"]([^'\"]+)['\"]");
+	}
+
+	private static void setIfNotNull(Properties properties, String key, String value) {
+		if (value != null) {
+			properties.setProperty(key, value);
+		}
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.java.ChangePackage;
+import org.openrewrite.java.Java11Parser;
+import org.openrewrite.java.JavaParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.UpException;
+
+/**
+ * Changes a package of java sources in a directory using OpenRewrite.
+ *
+ * Only sources containing an existing package name are parsed. Others can't
+ * reference or declare types in that package, so nothing in those would
+ * change or move.
+ *
+ * Sources are parsed together in one go as a type attribution of a source
+ * depends on other sources, and then recipe runs are partitioned across a
+ * bounded pool. Results are merged in a source order so that outcome is same
+ * as running a recipe serially. Each result is encoded in a charset its
+ * source was decoded with. A refactored directory is left untouched and only changed sources
+ * are written into a separate directory.
+ *
+ * @author Janne Valkealahti
+ */
+public class PackageRefactorer {
+
+	private static final Logger logger = LoggerFactory.getLogger(PackageRefactorer.class);
+
+	/**
+	 * Charset of a source which isn't valid utf-8. It maps every byte to a
+	 * character of its own, so bytes of any single byte charset like
+	 * windows-1252 are written back unchanged.
+	 */
+	private final static Charset FALLBACK_CHARSET = StandardCharsets.ISO_8859_1;
+
+	private final int parallelism;
+
+	/**
+	 * Creates a new refactorer.
+	 *
+	 * @param parallelism the maximum number of concurrent recipe runs
+	 */
+	public PackageRefactorer(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Refactors sources of an indexed directory from a package to another
+	 * without modifying it. Changed sources are written into a target directory
+	 * and returned changes resolve from there.
+	 *
+	 * @param index the index of a directory
+	 * @param fromPackage the existing package
+	 * @param targetPackageName the new package
+	 * @param targetPath the directory changed sources are written into
+	 * @return the changes
+	 */
+	public Changes refactor(ProjectIndex index, String fromPackage, String targetPackageName, Path targetPath) {
+		List<Path> sources = index.getJavaFiles().stream()
+				.map(name -> index.getRoot().resolve(name))
+				.collect(Collectors.toList());
+		// source paths relative to a root are also relative paths in a target
+		Map<Path, Charset> charsets = new HashMap<>();
+		List<Result> results = parseAndRun(index.getRoot(), sources, fromPackage, targetPackageName, charsets);
+		ResultsExecutor container = new ResultsExecutor(true, parallelism, charsets::get);
+		container.addAll(results);
+		try {
+			container.executeInto(index.getRoot(), targetPath);
+		}
+		catch (IOException e) {
+			throw new UpException("Error performing refactoring", e);
+		}
+		return changes(index.getRoot(), results, targetPath);
+	}
+
+	private List<Result> parseAndRun(Path relativeTo, List<Path> sources, String fromPackage,
+			String targetPackageName, Map<Path, Charset> charsets) {
+		logger.debug("Refactoring to package name " + targetPackageName);
+		List<Path> affected = affectedSources(sources, fromPackage, targetPackageName);
+		logger.debug("Parsing {} of {} java sources referencing {}", affected.size(), sources.size(), fromPackage);
+		if (affected.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Parser.Input> inputs = new ArrayList<>(affected.size());
+		for (Path source : affected) {
+			// parser sees utf-8 whatever a source was, its own charset is kept for writing
+			String content = read(source, relativeTo, charsets);
+			inputs.add(new Parser.Input(source,
+					() -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+		}
+		JavaParser javaParser = new Java11Parser.Builder().charset(StandardCharsets.UTF_8).build();
+		Consumer<Throwable> onError = e -> {
+			logger.error("error in javaParser execution", e);
+		};
+		InMemoryExecutionContext executionContext = new InMemoryExecutionContext(onError);
+		List<? extends SourceFile> compilationUnits = javaParser.parseInputs(inputs, relativeTo, executionContext);
+		return run(compilationUnits, fromPackage, targetPackageName);
+	}
+
+	private static Changes changes(Path workingPath, List<Result> results, Path directory) {
+		List<String> deleted = new ArrayList<>();
+		List<String> written = new ArrayList<>();
+		for (Result result : results) {
+			Path before = result.getBefore() != null ? result.getBefore().getSourcePath() : null;
+			Path after = result.getAfter() != null ? result.getAfter().getSourcePath() : null;
+			if (before != null && (after == null || !before.equals(after))) {
+				deleted.add(relativePath(workingPath, before));
+			}
+			if (after != null) {
+				written.add(relativePath(workingPath, after));
+			}
+		}
+		return new Changes(deleted, written, directory);
+	}
+
+	private static String relativePath(Path workingPath, Path path) {
+		Path relative = path.isAbsolute() ? workingPath.toAbsolutePath().relativize(path) : path;
+		return relative.toString().replace('\\', '/');
+	}
+
+	/**
+	 * Reads a source as utf-8 if it's valid utf-8 and otherwise in a fallback
+	 * charset, recording a charset by a source path a parser gives it.
+	 */
+	private static String read(Path source, Path relativeTo, Map<Path, Charset> charsets) {
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(source);
+		}
+		catch (IOException e) {
+			throw new UpException("Failed reading " + source, e);
+		}
+		Charset charset = StandardCharsets.UTF_8;
+		String content;
+		try {
+			content = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes))
+					.toString();
+		}
+		catch (CharacterCodingException e) {
+			charset = FALLBACK_CHARSET;
+			content = new String(bytes, charset);
+		}
+		charsets.put(relativeTo != null ? relativeTo.relativize(source) : source, charset);
+		return content;
+	}
+
+	/**
+	 * Finds sources containing a package name with a plain byte scan which is
+	 * a lot cheaper than parsing.
+	 */
+	private static List<Path> affectedSources(List<Path> sources, String fromPackage, String targetPackageName) {
+		TokenReplacer scanner = new TokenReplacer(Collections.singletonMap(fromPackage, targetPackageName));
+		List<Path> affected = new ArrayList<>();
+		for (Path source : sources) {
+			try (InputStream in = Files.newInputStream(source)) {
+				if (scanner.matches(in)) {
+					affected.add(source);
+				}
+			}
+			catch (IOException e) {
+				throw new UpException("Failed reading " + source, e);
+			}
+		}
+		return affected;
+	}
+
+	private List<Result> run(List<? extends SourceFile> compilationUnits, String fromPackage,
+			String targetPackageName) {
+		int partitions = Math.min(parallelism, compilationUnits.size());
+		if (partitions <= 1) {
+			Recipe recipe = new ChangePackage(fromPackage, targetPackageName, true);
+			return recipe.run(compilationUnits);
+		}
+
+		int partitionSize = (compilationUnits.size() + partitions - 1) / partitions;
+		List<Callable<List<Result>>> tasks = new ArrayList<>();
+		for (int i = 0; i < compilationUnits.size(); i += partitionSize) {
+			List<? extends SourceFile> partition = compilationUnits.subList(i,
+					Math.min(i + partitionSize, compilationUnits.size()));
+			tasks.add(() -> {
+				// recipe per partition so that no visitor state is shared
+				Recipe recipe = new ChangePackage(fromPackage, targetPackageName, true);
+				return recipe.run(partition);
+			});
+		}
+		logger.debug("Running recipe for {} sources in {} partitions", compilationUnits.size(), tasks.size());
+
+		ForkJoinPool pool = new ForkJoinPool(tasks.size());
+		try {
+			List<Result> results = new ArrayList<>();
+			for (Future<List<Result>> future : pool.invokeAll(tasks)) {
+				results.addAll(future.get());
+			}
+			return results;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpException("Interrupted while refactoring", e);
+		}
+		catch (ExecutionException e) {
+			throw new UpException("Error performing refactoring", e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Changes made by a refactoring as paths relative to a refactored directory
+	 * together with a directory written files are located in. Changes can be
+	 * saved and later replayed without parsing anything.
+	 */
+	public static class Changes {
+
+		private final static String DELETED_FILE = "deleted.txt";
+		private final static String FILES = "files";
+
+		private final List<String> deleted;
+		private final List<String> written;
+		private final Path directory;
+
+		Changes(List<String> deleted, List<String> written, Path directory) {
+			this.deleted = deleted;
+			this.written = written;
+			this.directory = directory;
+		}
+
+		public List<String> getDeleted() {
+			return deleted;
+		}
+
+		public List<String> getWritten() {
+			return written;
+		}
+
+		/**
+		 * Gets a directory written files are located in, {@code null} if they
+		 * are in a refactored directory itself.
+		 *
+		 * @return the directory of written files
+		 */
+		public Path getDirectory() {
+			return directory;
+		}
+
+		/**
+		 * Saves changes, contents of written files are taken from a directory of
+		 * changes.
+		 *
+		 * @param target the directory to save into
+		 */
+		public void save(Path target) {
+			try {
+				Files.createDirectories(target);
+				Files.write(target.resolve(DELETED_FILE), deleted, StandardCharsets.UTF_8);
+				for (String path : written) {
+					Path file = target.resolve(FILES).resolve(path);
+					Files.createDirectories(file.getParent());
+					Files.copy(directory.resolve(path), file);
+				}
+			}
+			catch (IOException e) {
+				throw new UpException("Failed to save refactoring changes into " + target, e);
+			}
+		}
+
+		/**
+		 * Reads changes saved with {@link #save(Path)}. Written files are left
+		 * where they were saved and resolve from there.
+		 *
+		 * @param source the directory changes were saved into
+		 * @return the saved changes
+		 */
+		public static Changes replay(Path source) {
+			List<String> deleted;
+			try {
+				deleted = Files.readAllLines(source.resolve(DELETED_FILE), StandardCharsets.UTF_8);
+			}
+			catch (IOException e) {
+				throw new UpException("Failed to replay refactoring changes from " + source, e);
+			}
+			List<String> written = new ArrayList<>();
+			Path files = source.resolve(FILES);
+			if (Files.isDirectory(files)) {
+				try (Stream<Path> paths = Files.walk(files)) {
+					paths.filter(Files::isRegularFile)
+							.map(path -> relativePath(files, path))
+							.sorted()
+							.forEach(written::add);
+				}
+				catch (IOException e) {
+					throw new UpException("Failed to replay refactoring changes from " + source, e);
+				}
+			}
+			return new Changes(deleted, written, files);
+		}
+	}
+}
@@ -19,9 +19,14 @@ package org.springframework.up.util;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.nio.file.Files;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
@@ -31,6 +36,8 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
  */
 public class PomReader {
 
+	private final static XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
 	/**
 	 * Returns a parsed POM.
 	 */
@@ -42,20 +49,103 @@ public class PomReader {
 		if (!pom.exists()) {
 			return null;
 		}
-		String fileText = "";
 		try (Reader reader = new FileReader(pom)) {
-			if (file.isFile()) {
-				fileText = new String(Files.readAllBytes(file.toPath()));
-			}
 			MavenXpp3Reader xpp3Reader = new MavenXpp3Reader();
 			return xpp3Reader.read(reader);
 		}
 		catch (XmlPullParserException | IOException e) {
-			if (file.isFile() && fileText.length() == 0) {
+			if (file.isFile() && pom.length() == 0) {
 				throw new IllegalStateException("File [" + pom.getAbsolutePath() + "] is empty", e);
 			}
 			throw new IllegalStateException("Failed to read file: " + pom.getAbsolutePath(), e);
 		}
 	}
 
+	/**
+	 * Returns coordinates of a POM read with a streaming parser which stops as
+	 * soon as top level {@code name}, {@code groupId}, {@code artifactId} and
+	 * {@code version} are known. Values are as in a raw model, meaning nothing
+	 * is inherited from a parent. Falls back to a full model if requested or
+	 * if streaming fails.
+	 */
+	public ProjectInfo readCoordinates(File file, boolean fullModel) {
+		File pom = file.isDirectory() ? new File(file, "pom.xml") : file;
+		if (!pom.exists()) {
+			return null;
+		}
+		if (!fullModel) {
+			try {
+				return streamCoordinates(pom);
+			}
+			catch (XMLStreamException | IOException e) {
+				// let a full model to report a problem
+			}
+		}
+		Model model = readPom(pom);
+		return new ProjectInfo(model.getName(), model.getGroupId(), model.getArtifactId(), model.getVersion());
+	}
+
+	/**
+	 * Returns coordinates of a POM read with a streaming parser.
+	 */
+	public ProjectInfo readCoordinates(File file) {
+		return readCoordinates(file, false);
+	}
+
+	private static ProjectInfo streamCoordinates(File pom) throws XMLStreamException, IOException {
+		String[] names = { "name", "groupId", "artifactId", "version" };
+		String[] values = new String[names.length];
+		int remaining = names.length;
+		try (InputStream in = Files.newInputStream(pom.toPath())) {
+			XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+			try {
+				int depth = 0;
+				while (remaining > 0 && reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamReader.START_ELEMENT) {
+						depth++;
+						if (depth == 1 && !"project".equals(reader.getLocalName())) {
+							throw new XMLStreamException("Not a pom, root element is " + reader.getLocalName());
+						}
+						if (depth == 2) {
+							int i = indexOf(names, reader.getLocalName());
+							if (i >= 0) {
+								String value = reader.getElementText().trim();
+								depth--;
+								if (values[i] == null) {
+									values[i] = value;
+									remaining--;
+								}
+							}
+						}
+					}
+					else if (event == XMLStreamReader.END_ELEMENT) {
+						depth--;
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		return new ProjectInfo(values[0], values[1], values[2], values[3]);
+	}
+
+	private static int indexOf(String[] names, String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.UpException;
+
+/**
+ * Copies template files into a new project replacing tokens of an existing
+ * project in text files. Files are processed concurrently on a bounded pool so that
+ * token replacement of one file overlaps with io of others.
+ *
+ * Each file is read and written once. A text file is streamed through a
+ * token replacer, which writes it as is if there's nothing to replace, and
+ * any other file is transferred as is.
+ *
+ * Errors are reported only after every file has been processed and always
+ * for a first failed file in name order, so outcome doesn't depend on how
+ * files got scheduled.
+ *
+ * @author Janne Valkealahti
+ */
+public class ProjectFileCopier {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProjectFileCopier.class);
+
+	private final int parallelism;
+
+	/**
+	 * Creates a new copier.
+	 *
+	 * @param parallelism the maximum number of files processed concurrently
+	 */
+	public ProjectFileCopier(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Copies all files of an indexed directory using text classification from
+	 * an index. Changed files are copied from where an index resolves them.
+	 *
+	 * @param index the index of a source directory
+	 * @param toDir the target directory
+	 * @param replacer the token replacer for text files
+	 */
+	public void copy(ProjectIndex index, File toDir, TokenReplacer replacer) {
+		File fromDir = index.getRoot().toFile();
+		String[] sortedFileNames = index.getFiles().toArray(new String[0]);
+		toDir.mkdirs();
+
+		CopyStats stats = new CopyStats();
+		List<Callable<Void>> tasks = new ArrayList<>(sortedFileNames.length);
+		for (String fileName : sortedFileNames) {
+			tasks.add(() -> {
+				copyFile(index.resolve(fileName), new File(toDir, fileName).toPath(), replacer,
+						index.isText(fileName), stats);
+				return null;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, tasks.size())));
+		try {
+			List<Future<Void>> futures = pool.invokeAll(tasks);
+			UpException error = null;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				}
+				catch (ExecutionException e) {
+					if (error == null) {
+						error = new UpException("Could not copy files from " + fromDir.getAbsolutePath() + " to "
+								+ toDir.getAbsolutePath() + ", failed at " + sortedFileNames[i], e.getCause());
+					}
+					else {
+						error.addSuppressed(e.getCause());
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+			logger.debug("Transferred {} files with {} bytes, scanned {} text files, replaced tokens in {} files",
+					stats.transferred, stats.transferredBytes, stats.scanned, stats.replaced);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpException("Interrupted while copying files to " + toDir.getAbsolutePath(), e);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void copyFile(Path srcFile, Path destFile, TokenReplacer replacer, boolean text, CopyStats stats)
+			throws IOException {
+		logger.debug("Copy from " + srcFile + " to " + destFile);
+		Files.createDirectories(destFile.getParent());
+		if (!replacer.isEmpty() && text) {
+			// without matches a replacer writes a same content, no need to check first
+			long count;
+			try (InputStream in = Files.newInputStream(srcFile);
+					OutputStream out = new BufferedOutputStream(Files.newOutputStream(destFile))) {
+				count = replacer.replace(in, out);
+			}
+			if (count > 0) {
+				logger.debug("In file " + destFile + " replaced " + count + " tokens");
+				stats.replaced.increment();
+			}
+			stats.scanned.increment();
+		}
+		else {
+			stats.transferredBytes.add(transfer(srcFile, destFile));
+			stats.transferred.increment();
+		}
+		// set executable file system permissions if needed.
+		if (Files.isExecutable(srcFile)) {
+			destFile.toFile().setExecutable(true);
+		}
+	}
+
+	/**
+	 * Transfers a file as is letting an os to copy bytes without bringing those
+	 * into a jvm where possible.
+	 */
+	private static long transfer(Path srcFile, Path destFile) throws IOException {
+		try (FileChannel in = FileChannel.open(srcFile, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(destFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+			while (position < size) {
+				position += in.transferTo(position, size - position, out);
+			}
+			return size;
+		}
+	}
+
+	private static class CopyStats {
+
+		final LongAdder transferred = new LongAdder();
+		final LongAdder transferredBytes = new LongAdder();
+		final LongAdder scanned = new LongAdder();
+		final LongAdder replaced = new LongAdder();
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.up.UpException;
+import org.springframework.up.util.PackageRefactorer.Changes;
+
+/**
+ * Index of a project directory built with a single walk over it. Records
+ * every file with its text or binary classification, java sources and build
+ * files so that steps generating a project don't need to scan a directory
+ * again. Contents of java sources are not read, an application class is
+ * searched from them lazily by {@link RootPackageFinder}.
+ *
+ * Files are classified concurrently on a bounded pool once the walk has
+ * found them. Paths are relative to a root and use {@code /} as a separator.
+ *
+ * Changes can be layered on top of an index without modifying its root, a
+ * changed file then resolves into a directory the changes were written into
+ * and a deleted one is no longer part of an index.
+ *
+ * @author Janne Valkealahti
+ */
+public class ProjectIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProjectIndex.class);
+
+	private final static String JAVA_EXTENSION = ".java";
+
+	private final static Set<String> BUILD_FILES = new HashSet<>(Arrays.asList("pom.xml", "build.gradle",
+			"build.gradle.kts", "settings.gradle", "settings.gradle.kts"));
+
+	private final Path root;
+
+	private final TreeMap<String, Boolean> files;
+
+	private final Map<String, Path> changed;
+
+	private ProjectIndex(Path root, TreeMap<String, Boolean> files, Map<String, Path> changed) {
+		this.root = root;
+		this.files = files;
+		this.changed = changed;
+	}
+
+	/**
+	 * Builds an index of a directory.
+	 *
+	 * @param root the directory
+	 * @param parallelism the maximum number of files classified concurrently
+	 * @return the project index
+	 */
+	public static ProjectIndex build(Path root, int parallelism) {
+		List<String> names = new ArrayList<>();
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile()) {
+						names.add(relativeName(root, file));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException e) {
+			throw new UpException("Failed reading files in " + root, e);
+		}
+		Collections.sort(names);
+
+		TextFileClassifier classifier = new TextFileClassifier();
+		List<Callable<FileInfo>> tasks = new ArrayList<>(names.size());
+		for (String name : names) {
+			tasks.add(() -> classify(root, name, classifier));
+		}
+		TreeMap<String, Boolean> files = new TreeMap<>();
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, tasks.size())));
+		try {
+			for (Future<FileInfo> future : pool.invokeAll(tasks)) {
+				FileInfo info = future.get();
+				files.put(info.name, info.text);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpException("Interrupted while indexing " + root, e);
+		}
+		catch (ExecutionException e) {
+			throw new UpException("Failed indexing " + root, e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		logger.debug("Indexed {} files in {} with classification in {}ms", files.size(), root,
+				classifier.getNanos() / 1_000_000);
+		return new ProjectIndex(root, files, Collections.emptyMap());
+	}
+
+	/**
+	 * Creates an index reflecting changes. Written files are resolved from a
+	 * directory of changes, which is a root of this index if changes were made
+	 * in place. Written files are java sources and as such text files, none
+	 * of them is read.
+	 *
+	 * @param changes the changes
+	 * @return the project index
+	 */
+	public ProjectIndex withChanges(Changes changes) {
+		Path directory = changes.getDirectory() != null ? changes.getDirectory() : root;
+		TreeMap<String, Boolean> changedFiles = new TreeMap<>(files);
+		Map<String, Path> changedPaths = new HashMap<>(changed);
+		for (String name : changes.getDeleted()) {
+			changedFiles.remove(name);
+			changedPaths.remove(name);
+		}
+		for (String name : changes.getWritten()) {
+			changedFiles.put(name, true);
+			changedPaths.put(name, directory.resolve(name));
+		}
+		return new ProjectIndex(root, changedFiles, changedPaths);
+	}
+
+	/**
+	 * Gets a root directory of this index.
+	 *
+	 * @return the root directory
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Resolves a location of an indexed file, which is in a directory of changes
+	 * for a changed file and otherwise in a root directory.
+	 *
+	 * @param name the relative file name
+	 * @return the file path
+	 */
+	public Path resolve(String name) {
+		Path file = changed.get(name);
+		return file != null ? file : root.resolve(name);
+	}
+
+	/**
+	 * Gets all files in a name order.
+	 *
+	 * @return the relative file names
+	 */
+	public Set<String> getFiles() {
+		return Collections.unmodifiableSet(files.keySet());
+	}
+
+	/**
+	 * Gets java sources in a name order.
+	 *
+	 * @return the relative file names
+	 */
+	public List<String> getJavaFiles() {
+		return files.keySet().stream()
+				.filter(name -> name.endsWith(JAVA_EXTENSION))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets build files located in a root directory.
+	 *
+	 * @return the relative file names
+	 */
+	public Set<String> getBuildFiles() {
+		return files.keySet().stream()
+				.filter(BUILD_FILES::contains)
+				.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	/**
+	 * Checks if a file is a text file.
+	 *
+	 * @param name the relative file name
+	 * @return true if file is known and is a text file
+	 */
+	public boolean isText(String name) {
+		return Boolean.TRUE.equals(files.get(name));
+	}
+
+	private static FileInfo classify(Path root, String name, TextFileClassifier classifier) throws IOException {
+		Path file = root.resolve(name);
+		return new FileInfo(name, classifier.isText(file));
+	}
+
+	private static String relativeName(Path root, Path file) {
+		return root.relativize(file).toString().replace('\\', '/');
+	}
+
+	private static class FileInfo {
+
+		final String name;
+		final boolean text;
+
+		FileInfo(String name, boolean text) {
+			this.name = name;
+			this.text = text;
+		}
+	}
+}
@@ -18,13 +18,27 @@ package org.springframework.up.util;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import org.openrewrite.Result;
@@ -39,6 +53,11 @@ import org.springframework.up.UpException;
  */
 public class ResultsExecutor {
 
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final static ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
 	private final List<Result> results = new ArrayList<>();
 
 	/**
@@ -47,12 +66,33 @@ public class ResultsExecutor {
 	 */
 	private final boolean deleteEmptyDirs;
 
+	/**
+	 * Maximum number of files written concurrently into a target directory.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Charset of a result by a source path of its original, which must be the
+	 * one an original was decoded with. New files are written as utf-8.
+	 */
+	private final Function<Path, Charset> charsets;
+
 	public ResultsExecutor() {
 		this(true);
 	}
 
 	public ResultsExecutor(boolean deleteEmptyDirs) {
+		this(deleteEmptyDirs, 1);
+	}
+
+	public ResultsExecutor(boolean deleteEmptyDirs, int parallelism) {
+		this(deleteEmptyDirs, parallelism, path -> StandardCharsets.UTF_8);
+	}
+
+	public ResultsExecutor(boolean deleteEmptyDirs, int parallelism, Function<Path, Charset> charsets) {
 		this.deleteEmptyDirs = deleteEmptyDirs;
+		this.parallelism = Math.max(1, parallelism);
+		this.charsets = charsets;
 	}
 
 	/**
@@ -100,13 +140,124 @@ public class ResultsExecutor {
 			if (result.getAfter() != null) {
 				Path afterPath = result.getAfter().getSourcePath();
 				afterPath.toFile().getParentFile().mkdirs();
-				try (BufferedWriter sourceFileWriter = Files.newBufferedWriter(afterPath)) {
+				try (BufferedWriter sourceFileWriter = Files.newBufferedWriter(afterPath, charsetOf(result))) {
 					sourceFileWriter.write(result.getAfter().print());
 				}
 			}
 		}
 	}
 
+	/**
+	 * Writes every result into a target directory leaving a root directory
+	 * untouched, results are resolved relative to a root. Deletions are not
+	 * performed as nothing is deleted from a root, a caller knows deleted files
+	 * from results. A failure or a crash midway can then only leave a partial
+	 * target behind, never a half-refactored root.
+	 *
+	 * Files are written concurrently, which is safe as {@link #check()} has
+	 * proven destinations to be disjoint, each through a reused direct buffer
+	 * per writing thread.
+	 *
+	 * @param root the directory all results are located in
+	 * @param target the directory to write results into
+	 * @throws IOException if writing fails
+	 */
+	public void executeInto(Path root, Path target) throws IOException {
+		check();
+
+		List<Callable<Void>> writes = new ArrayList<>();
+		for (Result result : results) {
+			if (result.getAfter() != null) {
+				Path afterPath = targetOf(root, target, result.getAfter().getSourcePath());
+				writes.add(() -> {
+					Files.createDirectories(afterPath.getParent());
+					write(afterPath, result.getAfter().print(), charsetOf(result));
+					return null;
+				});
+			}
+		}
+		writeAll(writes);
+	}
+
+	private void writeAll(List<Callable<Void>> writes) throws IOException {
+		if (writes.isEmpty()) {
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, writes.size()));
+		try {
+			for (Future<Void> future : pool.invokeAll(writes)) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpException("Interrupted while writing results", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new UpException("Error writing results", e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private Charset charsetOf(Result result) {
+		Charset charset = result.getBefore() != null ? charsets.apply(result.getBefore().getSourcePath()) : null;
+		return charset != null ? charset : StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Encodes content into a new file in chunks of a thread's direct buffer so
+	 * that no intermediate byte array of a whole file is created. A character
+	 * a charset can't encode fails a write instead of being replaced.
+	 */
+	private static void write(Path path, String content, Charset charset) throws IOException {
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		CharBuffer in = CharBuffer.wrap(content);
+		ByteBuffer buffer = BUFFERS.get();
+		try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+			CoderResult result;
+			do {
+				buffer.clear();
+				result = encoder.encode(in, buffer, true);
+				if (result.isError()) {
+					throw new IOException("Could not encode " + path + " as " + charset + ", " + result);
+				}
+				drain(buffer, out);
+			}
+			while (result.isOverflow());
+			do {
+				buffer.clear();
+				result = encoder.flush(buffer);
+				drain(buffer, out);
+			}
+			while (result.isOverflow());
+		}
+	}
+
+	private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+	/**
+	 * Resolves a result path into a target directory.
+	 */
+	private static Path targetOf(Path root, Path target, Path path) {
+		Path relative = path.isAbsolute() ? root.toAbsolutePath().relativize(path) : path;
+		if (relative.isAbsolute() || relative.startsWith("..")) {
+			throw new UpException("Result " + path + " is outside of " + root);
+		}
+		return target.resolve(relative);
+	}
+
 	/**
 	 * Walks the directory hierarchy upwards and deletes any empty directories.
 	 * @param dir the initial directory to consider
@@ -17,52 +17,188 @@
 
 package org.springframework.up.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
-import org.apache.tools.ant.DirectoryScanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.up.UpException;
 
+/**
+ * Finds a root package of a project from a location of a class annotated
+ * with {@code @SpringBootApplication}.
+ *
+ * Candidates are searched from sources of a project index, from
+ * {@code src/main/java} first and shallowest packages first, as that's where
+ * an application class normally lives. Only a header of a source is read, up
+ * to a body of a first type declaration, as an annotation of a type can't
+ * come after that.
+ */
 public class RootPackageFinder {
 
 	private static final Logger logger = LoggerFactory.getLogger(RootPackageFinder.class);
 
-	public Optional<String> findRootPackage(File baseDirectory) {
-		DirectoryScanner ds = new DirectoryScanner();
-		String[] includes = { "**\\*.java" };
-		ds.setBasedir(baseDirectory);
-		ds.setIncludes(includes);
-		ds.scan();
-		String[] fileNames = ds.getIncludedFiles();
+	private final static String MAIN_SOURCES = "src/main/java/";
+
+	private final static byte[] ANNOTATION = "@SpringBootApplication".getBytes(StandardCharsets.US_ASCII);
+
+	private final static int HEADER_LIMIT = 64 * 1024;
+
+	private final static Comparator<String> PRIORITY_LEVEL = Comparator
+			.comparing((String name) -> !name.startsWith(MAIN_SOURCES))
+			.thenComparingInt(name -> Path.of(name).getNameCount());
 
-		for (String fileName : fileNames) {
-			logger.debug("Looking for @SpringBootApplication in file = " + fileName);
+	private final static Comparator<String> PRIORITY = PRIORITY_LEVEL.thenComparing(Comparator.naturalOrder());
+
+	/**
+	 * Finds a root package from a most likely application class of an index.
+	 *
+	 * @param index the project index
+	 * @return the root package if an application class was found
+	 */
+	public Optional<String> findRootPackage(ProjectIndex index) {
+		return rootPackage(findApplicationClasses(index));
+	}
+
+	/**
+	 * Gets classes annotated with {@code @SpringBootApplication} at a first
+	 * depth having any, {@code src/main/java} being searched before anything
+	 * else. Sources are checked lazily in a priority order so that sources
+	 * after that depth are never read.
+	 *
+	 * @param index the project index
+	 * @return the relative file names in a name order
+	 */
+	public List<String> findApplicationClasses(ProjectIndex index) {
+		List<String> sources = index.getJavaFiles();
+		sources.sort(PRIORITY);
+		List<String> candidates = new ArrayList<>();
+		String level = null;
+		for (String source : sources) {
+			if (!candidates.isEmpty() && PRIORITY_LEVEL.compare(level, source) != 0) {
+				break;
+			}
+			level = source;
+			logger.debug("Looking for @SpringBootApplication in file = " + source);
 			try {
-				File fileToTest = new File(baseDirectory, fileName);
-				List<String> lines = Files.lines(fileToTest.toPath())
-						.filter(line -> line.contains("@SpringBootApplication"))
-						.collect(Collectors.toList());
-				if (lines.isEmpty()) {
-					continue;
-				} else {
-					return Optional.of(extractRootPackageName(new File(fileName)));
+				if (isApplicationClass(index.resolve(source))) {
+					candidates.add(source);
 				}
 			}
 			catch (IOException e) {
-				e.printStackTrace();
-				throw new UpException("Exception reading " + fileName + " " + e.getMessage(), e);
+				throw new UpException("Exception reading " + source + " " + e.getMessage(), e);
+			}
+		}
+		return candidates;
+	}
 
+	/**
+	 * Checks if a java source declares a type annotated with
+	 * {@code @SpringBootApplication}. Comments and literals are skipped and
+	 * reading stops at an opening brace of a type body, or at most after a
+	 * bounded header. A brace within parentheses belongs to an annotation
+	 * argument, like an array value, and a type body is the first brace
+	 * outside of them.
+	 */
+	public static boolean isApplicationClass(Path file) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			int matched = 0;
+			int previous = -1;
+			int depth = 0;
+			int b;
+			for (int read = 0; read < HEADER_LIMIT && (b = in.read()) >= 0; read++) {
+				if (matched == ANNOTATION.length) {
+					if (!Character.isJavaIdentifierPart(b)) {
+						return true;
+					}
+					matched = 0;
+				}
+				if (b == '/' && previous == '/') {
+					read += skipUntil(in, "\n");
+					b = -1;
+				}
+				else if (b == '*' && previous == '/') {
+					read += skipUntil(in, "*/");
+					b = -1;
+				}
+				else if (b == '"' || b == '\'') {
+					read += skipLiteral(in, b);
+					b = -1;
+				}
+				else if (b == '(') {
+					depth++;
+					matched = 0;
+				}
+				else if (b == ')') {
+					depth = Math.max(0, depth - 1);
+					matched = 0;
+				}
+				else if (b == '{' && depth == 0) {
+					return false;
+				}
+				else if (b == ANNOTATION[matched]) {
+					matched++;
+				}
+				else {
+					matched = b == ANNOTATION[0] ? 1 : 0;
+				}
+				previous = b;
 			}
+			return matched == ANNOTATION.length;
+		}
+	}
+
+	private static int skipUntil(InputStream in, String end) throws IOException {
+		int matched = 0;
+		int read = 0;
+		int b;
+		while (matched < end.length() && (b = in.read()) >= 0) {
+			read++;
+			if (b == end.charAt(matched)) {
+				matched++;
+			}
+			else {
+				matched = b == end.charAt(0) ? 1 : 0;
+			}
+		}
+		return read;
+	}
+
+	private static int skipLiteral(InputStream in, int quote) throws IOException {
+		int read = 0;
+		int b;
+		while ((b = in.read()) >= 0) {
+			read++;
+			if (b == '\\') {
+				in.read();
+				read++;
+			}
+			else if (b == quote || b == '\n') {
+				break;
+			}
+		}
+		return read;
+	}
+
+	private Optional<String> rootPackage(List<String> candidates) {
+		if (candidates.isEmpty()) {
+			return Optional.empty();
+		}
+		if (candidates.size() > 1) {
+			logger.warn("Found multiple @SpringBootApplication classes {}, using {}", candidates, candidates.get(0));
 		}
-		return Optional.empty();
+		logger.debug("Found @SpringBootApplication in file = " + candidates.get(0));
+		return Optional.of(extractRootPackageName(new File(candidates.get(0))));
 	}
 
 	public String extractRootPackageName(File file) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tika.Tika;
+import org.apache.tika.mime.MimeTypes;
+
+/**
+ * Classifies files either as text or binary. A single {@link Tika} is shared
+ * as creating one loads a whole detector configuration. A file is opened only
+ * once as bytes tika would look at are read up front and handed to it.
+ *
+ * @author Janne Valkealahti
+ */
+public class TextFileClassifier {
+
+	private final static Tika TIKA = new Tika();
+
+	private final static int MAGIC_LENGTH = MimeTypes.getDefaultMimeTypes().getMinLength();
+
+	private final LongAdder nanos = new LongAdder();
+
+	/**
+	 * Checks if a file is a text file, meaning a {@code text} or {@code xml}
+	 * media type.
+	 *
+	 * @param file the file
+	 * @return true if file is a text file
+	 * @throws IOException if file can't be read
+	 */
+	public boolean isText(Path file) throws IOException {
+		long start = System.nanoTime();
+		try {
+			byte[] magic;
+			try (InputStream in = Files.newInputStream(file)) {
+				magic = in.readNBytes(MAGIC_LENGTH);
+			}
+			String type = TIKA.detect(magic, file.getFileName().toString());
+			return type.startsWith("text") || type.contains("xml");
+		}
+		finally {
+			nanos.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Gets a total time spent in a classification.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos.sum();
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Replaces multiple tokens in a single streaming pass. Matching happens on
+ * bytes against a trie of all tokens with leftmost longest semantics, so
+ * line endings and any ascii compatible encoding are kept as is and only a
+ * fixed size buffer is needed regardless of a content size.
+ *
+ * Tokens can be restricted to whole words where a match is not preceded or
+ * followed by an identifier byte and not preceded by a dot, so that a token is
+ * not replaced within a longer identifier or as a segment of a qualified name.
+ *
+ * @author Janne Valkealahti
+ */
+public class TokenReplacer {
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final byte[][] replacements;
+
+	private final int[][] trie;
+
+	private final int[] outputs;
+
+	private final boolean[] firstBytes = new boolean[256];
+
+	private final int maxLength;
+
+	private final boolean wholeWords;
+
+	/**
+	 * Creates a new replacer. Empty tokens and tokens replaced with itself are
+	 * ignored.
+	 *
+	 * @param tokens the tokens mapped to their replacements
+	 */
+	public TokenReplacer(Map<String, String> tokens) {
+		this(tokens, false);
+	}
+
+	/**
+	 * Creates a new replacer. Empty tokens and tokens replaced with itself are
+	 * ignored.
+	 *
+	 * @param tokens the tokens mapped to their replacements
+	 * @param wholeWords whether tokens are only replaced as whole words
+	 */
+	public TokenReplacer(Map<String, String> tokens, boolean wholeWords) {
+		this.wholeWords = wholeWords;
+		List<byte[]> froms = new ArrayList<>();
+		List<byte[]> tos = new ArrayList<>();
+		tokens.forEach((from, to) -> {
+			if (StringUtils.hasLength(from) && !ObjectUtils.nullSafeEquals(from, to)) {
+				froms.add(from.getBytes(StandardCharsets.UTF_8));
+				tos.add((to != null ? to : "").getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		this.replacements = tos.toArray(new byte[0][]);
+
+		List<int[]> nodes = new ArrayList<>();
+		List<Integer> nodeOutputs = new ArrayList<>();
+		nodes.add(newNode());
+		nodeOutputs.add(-1);
+		int max = 0;
+		for (int i = 0; i < froms.size(); i++) {
+			byte[] from = froms.get(i);
+			max = Math.max(max, from.length);
+			firstBytes[from[0] & 0xff] = true;
+			int node = 0;
+			for (byte b : from) {
+				int next = nodes.get(node)[b & 0xff];
+				if (next < 0) {
+					next = nodes.size();
+					nodes.add(newNode());
+					nodeOutputs.add(-1);
+					nodes.get(node)[b & 0xff] = next;
+				}
+				node = next;
+			}
+			nodeOutputs.set(node, i);
+		}
+		this.trie = nodes.toArray(new int[0][]);
+		this.outputs = nodeOutputs.stream().mapToInt(Integer::intValue).toArray();
+		this.maxLength = max;
+	}
+
+	/**
+	 * Creates a replacer changing values of an existing project into values of
+	 * a new project. Values which don't differ are not replaced and values are
+	 * only replaced as whole words as a short name like {@code demo} is likely
+	 * to be a part of unrelated identifiers.
+	 *
+	 * @param from the existing project info
+	 * @param to the new project info
+	 * @return the token replacer
+	 */
+	public static TokenReplacer of(ProjectInfo from, ProjectInfo to) {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put(from.getName(), to.getName());
+		tokens.putIfAbsent(from.getArtifactId(), to.getArtifactId());
+		tokens.putIfAbsent(from.getGroupId(), to.getGroupId());
+		tokens.putIfAbsent(from.getVersion(), to.getVersion());
+		tokens.remove(null);
+		return new TokenReplacer(tokens, true);
+	}
+
+	/**
+	 * Checks if there are no tokens to replace.
+	 *
+	 * @return true if nothing is ever replaced
+	 */
+	public boolean isEmpty() {
+		return replacements.length == 0;
+	}
+
+	/**
+	 * Checks if a stream contains any of the tokens. Reading stops at a first
+	 * match.
+	 *
+	 * @param in the input stream
+	 * @return true if a token was found
+	 * @throws IOException if reading fails
+	 */
+	public boolean matches(InputStream in) throws IOException {
+		return process(in, null) > 0;
+	}
+
+	/**
+	 * Copies a stream replacing all tokens.
+	 *
+	 * @param in the input stream
+	 * @param out the output stream
+	 * @return the number of replaced tokens
+	 * @throws IOException if reading or writing fails
+	 */
+	public long replace(InputStream in, OutputStream out) throws IOException {
+		return process(in, out);
+	}
+
+	/**
+	 * Scans a stream and if output is given, writes everything into it with
+	 * tokens replaced. Without output scanning stops at a first match.
+	 */
+	private long process(InputStream in, OutputStream out) throws IOException {
+		if (isEmpty()) {
+			if (out != null) {
+				in.transferTo(out);
+			}
+			return 0;
+		}
+		// one byte past a longest token is needed to check a word boundary
+		int lookahead = maxLength + 1;
+		byte[] buf = new byte[Math.max(BUFFER_SIZE, lookahead * 2)];
+		int len = 0;
+		int pos = 0;
+		int flushed = 0;
+		int before = -1;
+		boolean eof = false;
+		long count = 0;
+		while (true) {
+			if (!eof && len - pos < lookahead) {
+				// keep enough bytes ahead of a position for a longest token
+				if (out != null) {
+					out.write(buf, flushed, pos - flushed);
+				}
+				if (pos > 0) {
+					before = buf[pos - 1] & 0xff;
+				}
+				int remaining = len - pos;
+				System.arraycopy(buf, pos, buf, 0, remaining);
+				len = remaining;
+				pos = 0;
+				flushed = 0;
+				while (len < buf.length) {
+					int read = in.read(buf, len, buf.length - len);
+					if (read < 0) {
+						eof = true;
+						break;
+					}
+					len += read;
+				}
+			}
+			if (pos >= len) {
+				break;
+			}
+			int previous = pos > 0 ? buf[pos - 1] & 0xff : before;
+			if (firstBytes[buf[pos] & 0xff] && (!wholeWords || isWordStart(previous))) {
+				int match = -1;
+				int matchLength = 0;
+				int node = 0;
+				for (int i = pos; i < len; i++) {
+					node = trie[node][buf[i] & 0xff];
+					if (node < 0) {
+						break;
+					}
+					if (outputs[node] >= 0 && (!wholeWords || i + 1 >= len || !isIdentifier(buf[i + 1] & 0xff))) {
+						match = outputs[node];
+						matchLength = i - pos + 1;
+					}
+				}
+				if (match >= 0) {
+					count++;
+					if (out == null) {
+						return count;
+					}
+					out.write(buf, flushed, pos - flushed);
+					out.write(replacements[match]);
+					pos += matchLength;
+					flushed = pos;
+					continue;
+				}
+			}
+			pos++;
+		}
+		if (out != null) {
+			out.write(buf, flushed, pos - flushed);
+		}
+		return count;
+	}
+
+	private static boolean isWordStart(int previous) {
+		return previous < 0 || (previous != '.' && !isIdentifier(previous));
+	}
+
+	/**
+	 * Ascii letters, digits, {@code _} and {@code $}, and any non ascii byte as
+	 * it's a part of a multibyte character.
+	 */
+	private static boolean isIdentifier(int b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '$'
+				|| b >= 0x80;
+	}
+
+	private static int[] newNode() {
+		int[] node = new int[256];
+		Arrays.fill(node, -1);
+		return node;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.command;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.jline.terminal.Terminal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.up.UpException;
+import org.springframework.up.command.BatchManifest.InitializrSpec;
+import org.springframework.up.command.BatchManifest.ProjectSpec;
+import org.springframework.up.config.TemplateRepositoryProperties;
+import org.springframework.up.config.UpCliProperties;
+import org.springframework.up.git.GitClientRegistry;
+import org.springframework.up.git.TemplateCache;
+import org.springframework.up.git.UrlRepositoryService;
+import org.springframework.up.support.AbstractShellTests;
+import org.springframework.up.support.UpCliUserConfig;
+import org.springframework.util.FileSystemUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchCommandsTests extends AbstractShellTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void readsManifest() throws IOException {
+		Path manifest = Files.writeString(tempDir.resolve("manifest.yml"), String.join("\n",
+				"parallelism: 2",
+				"directory: generated",
+				"projects:",
+				"  - name: orders",
+				"    template: jpa",
+				"    package-name: com.example.orders",
+				"  - name: billing",
+				"    initializr:",
+				"      path: billing-service",
+				"      boot-version: 2.6.4",
+				"      dependencies:",
+				"        - web",
+				"        - actuator"));
+
+		BatchManifest batchManifest = BatchCommands.readManifest(manifest);
+
+		assertThat(batchManifest.getParallelism()).isEqualTo(2);
+		assertThat(batchManifest.getDirectory()).isEqualTo("generated");
+		assertThat(batchManifest.getProjects()).hasSize(2);
+		ProjectSpec orders = batchManifest.getProjects().get(0);
+		assertThat(orders.getName()).isEqualTo("orders");
+		assertThat(orders.getTemplate()).isEqualTo("jpa");
+		assertThat(orders.getPackageName()).isEqualTo("com.example.orders");
+		assertThat(orders.getInitializr()).isNull();
+		InitializrSpec billing = batchManifest.getProjects().get(1).getInitializr();
+		assertThat(billing.getPath()).isEqualTo("billing-service");
+		assertThat(billing.getBootVersion()).isEqualTo("2.6.4");
+		assertThat(billing.getDependencies()).containsExactly("web", "actuator");
+	}
+
+	@Test
+	public void rejectsProjectsSharingDirectory() {
+		assertThatThrownBy(() -> BatchCommands.validateUnique(Arrays.asList(spec("demo"), spec("Demo"))))
+				.isInstanceOf(UpException.class)
+				.hasMessageContaining("already used");
+
+		ProjectSpec initializr = spec("other");
+		initializr.setTemplate(null);
+		initializr.setInitializr(new InitializrSpec());
+		initializr.getInitializr().setPath("my_app");
+		assertThatThrownBy(() -> BatchCommands.validateUnique(Arrays.asList(spec("my app"), initializr)))
+				.isInstanceOf(UpException.class)
+				.hasMessageContaining("already used");
+
+		BatchCommands.validateUnique(Arrays.asList(spec("demo"), spec("other")));
+	}
+
+	@Test
+	public void generatesProjectsFromLocalTemplate() throws IOException {
+		Path template = tempDir.resolve("template");
+		FileSystemUtils.copyRecursively(new ClassPathResource("template/demo").getFile().toPath(), template);
+		Path generated = tempDir.resolve("generated");
+		Path manifest = Files.writeString(tempDir.resolve("manifest.yml"), String.join("\n",
+				"directory: " + generated,
+				"projects:",
+				"  - name: one",
+				"    template: " + template.toUri(),
+				"    package-name: org.acme.app",
+				"  - name: two",
+				"    template: " + template.toUri(),
+				"    package-name: org.acme.app"));
+
+		UpCliProperties properties = new UpCliProperties();
+		TemplateCache templateCache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		UrlRepositoryService repositoryService = new UrlRepositoryService(new TemplateRepositoryProperties(),
+				properties, templateCache, new GitClientRegistry());
+		UpCliUserConfig userConfig = new UpCliUserConfig(name -> tempDir.resolve("config").resolve(name));
+		try (GenericApplicationContext context = new GenericApplicationContext()) {
+			context.registerBean(UpCliProperties.class, () -> properties);
+			context.registerBean(Terminal.class, this::getTerminal);
+			context.registerBean(BootCommands.class,
+					() -> new BootCommands(userConfig, repositoryService, templateCache));
+			context.registerBean(BatchCommands.class, () -> new BatchCommands(context.getBean(BootCommands.class),
+					null, repositoryService, templateCache));
+			context.refresh();
+
+			context.getBean(BatchCommands.class).batchNew(manifest.toString(), 2);
+		}
+
+		for (String name : Arrays.asList("one", "two")) {
+			assertThat(generated.resolve(name).resolve("src/main/java/org/acme/app/DemoApplication.java")).exists();
+			assertThat(Files.readString(
+					generated.resolve(name).resolve("src/main/java/org/acme/app/web/GreetingController.java")))
+					.contains("import org.acme.app.repository.GreetingRepository;");
+			assertThat(generated.resolve(name).resolve("src/main/java/com")).doesNotExist();
+		}
+		assertThat(template.resolve("src/main/java/com/example/demo/DemoApplication.java")).exists();
+		assertThat(consoleOut()).contains("Project one created.", "Project two created.");
+	}
+
+	private static ProjectSpec spec(String name) {
+		ProjectSpec spec = new ProjectSpec();
+		spec.setName(name);
+		spec.setTemplate("jpa");
+		return spec;
+	}
+}
@@ -15,10 +15,13 @@
  */
 package org.springframework.up.config;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.util.unit.DataSize;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -33,10 +36,17 @@ public class UpCliPropertiesTests {
 				.run((context) -> {
 					UpCliProperties properties = context.getBean(UpCliProperties.class);
 					assertThat(properties.getInitializr().getBaseUrl()).isEqualTo("https://start.spring.io");
+					assertThat(properties.getInitializr().getCacheTtl()).isEqualTo(Duration.ofHours(1));
 					assertThat(properties.getGithub().getClientId()).isNull();
 					assertThat(properties.getGithub().getDefaultScopes()).isEqualTo("repo,read:org");
 					assertThat(properties.getDefaults().getPackageName()).isNull();
 					assertThat(properties.getDefaults().getTemplateRepositoryName()).isNull();
+					assertThat(properties.getTemplateCache().isEnabled()).isTrue();
+					assertThat(properties.getTemplateCache().getMaxSize()).isEqualTo(DataSize.ofMegabytes(512));
+					assertThat(properties.getTemplateCache().getRevalidateAfter()).isEqualTo(Duration.ofMinutes(5));
+					assertThat(properties.getGeneration().getParallelism())
+							.isEqualTo(Runtime.getRuntime().availableProcessors());
+					assertThat(properties.isOffline()).isFalse();
 				});
 	}
 
@@ -44,20 +54,32 @@ public class UpCliPropertiesTests {
 	public void setProperties() {
 		this.contextRunner
 				.withPropertyValues("spring.up.initializr.base-url=fakeurl")
+				.withPropertyValues("spring.up.initializr.cache-ttl=10m")
 				.withPropertyValues("spring.up.github.client-id=fakeid")
 				.withPropertyValues("spring.up.github.default-scopes=fakescopes")
 				.withPropertyValues("spring.up.defaults.project-name=fakeproject")
 				.withPropertyValues("spring.up.defaults.package-name=fakepackage")
 				.withPropertyValues("spring.up.defaults.template-repository-name=fakerepo")
+				.withPropertyValues("spring.up.template-cache.enabled=false")
+				.withPropertyValues("spring.up.template-cache.max-size=10MB")
+				.withPropertyValues("spring.up.template-cache.revalidate-after=1h")
+				.withPropertyValues("spring.up.generation.parallelism=3")
+				.withPropertyValues("spring.up.offline=true")
 				.withUserConfiguration(Config1.class)
 				.run((context) -> {
 					UpCliProperties properties = context.getBean(UpCliProperties.class);
 					assertThat(properties.getInitializr().getBaseUrl()).isEqualTo("fakeurl");
+					assertThat(properties.getInitializr().getCacheTtl()).isEqualTo(Duration.ofMinutes(10));
 					assertThat(properties.getGithub().getClientId()).isEqualTo("fakeid");
 					assertThat(properties.getGithub().getDefaultScopes()).isEqualTo("fakescopes");
 					assertThat(properties.getDefaults().getProjectName()).isEqualTo("fakeproject");
 					assertThat(properties.getDefaults().getPackageName()).isEqualTo("fakepackage");
 					assertThat(properties.getDefaults().getTemplateRepositoryName()).isEqualTo("fakerepo");
+					assertThat(properties.getTemplateCache().isEnabled()).isFalse();
+					assertThat(properties.getTemplateCache().getMaxSize()).isEqualTo(DataSize.ofMegabytes(10));
+					assertThat(properties.getTemplateCache().getRevalidateAfter()).isEqualTo(Duration.ofHours(1));
+					assertThat(properties.getGeneration().getParallelism()).isEqualTo(3);
+					assertThat(properties.isOffline()).isTrue();
 				});
 	}
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GitHub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GitClientRegistryTests {
+
+	@Test
+	public void gitHubClientIsReusedPerHostAndToken() {
+		GitClientRegistry registry = new GitClientRegistry();
+		GitHub client = registry.getGitHub("github.com", "token1");
+
+		assertThat(registry.getGitHub("github.com", "token1")).isSameAs(client);
+		assertThat(registry.getGitHub("github.com", "token2")).isNotSameAs(client);
+		assertThat(registry.getGitHub("github.com", null)).isNotSameAs(client)
+				.isSameAs(registry.getGitHub("github.com", null));
+		assertThat(registry.getGitHub("github.example.com", "token1")).isNotSameAs(client);
+		registry.destroy();
+	}
+
+	@Test
+	public void gitHubClientUsesEndpointOfHost() {
+		GitClientRegistry registry = new GitClientRegistry();
+
+		assertThat(registry.getGitHub("github.com", null).getApiUrl()).isEqualTo("https://api.github.com");
+		assertThat(registry.getGitHub("github.example.com", "token").getApiUrl())
+				.isEqualTo("https://github.example.com/api/v3");
+		registry.destroy();
+	}
+
+	@Test
+	public void gitLabClientIsReusedPerHostAndToken() {
+		GitClientRegistry registry = new GitClientRegistry();
+
+		assertThat(registry.getGitLabApi("https", "gitlab.com", "token"))
+				.isSameAs(registry.getGitLabApi("https", "gitlab.com", "token"))
+				.isNotSameAs(registry.getGitLabApi("https", "gitlab.example.com", "token"));
+		registry.destroy();
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TemplateCacheTests {
+
+	private final static String SHA1 = "1111111111111111111111111111111111111111";
+	private final static String SHA2 = "2222222222222222222222222222222222222222";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void storeAndLookup() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url = GitRepoUrlRef.fromUriString("https://github.com/fake/repo?ref=main");
+
+		assertThat(cache.lookup(url)).isEmpty();
+
+		Path stored = cache.store(url, SHA1, content(cache, "hello"));
+		assertThat(stored.resolve("file.txt")).hasContent("hello");
+
+		Optional<Path> found = cache.lookup(url);
+		assertThat(found).hasValue(stored);
+		assertThat(cache.lookup(GitRepoUrlRef.fromUriString("https://github.com/fake/repo.git?ref=main")))
+				.hasValue(stored);
+		assertThat(cache.lookup(GitRepoUrlRef.fromUriString("https://github.com/fake/repo?ref=other"))).isEmpty();
+		assertThat(cache.getEntries()).hasSize(1);
+		assertThat(cache.getEntries().get(0).getSha()).isEqualTo(SHA1);
+	}
+
+	@Test
+	public void refCanBeUpdated() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url = GitRepoUrlRef.fromUriString("https://github.com/fake/repo?ref=main");
+
+		assertThat(cache.getRef(url)).isEmpty();
+		Path stored = cache.store(url, SHA1, content(cache, "hello"));
+		assertThat(cache.getRef(url).get().getSha()).isEqualTo(SHA1);
+		assertThat(cache.getSize(stored)).isEqualTo(5);
+
+		cache.updateRef(url, SHA2);
+		assertThat(cache.getRef(url).get().getSha()).isEqualTo(SHA2);
+		assertThat(cache.lookup(url)).isEmpty();
+		assertThat(cache.lookup(url, SHA1)).hasValue(stored);
+	}
+
+	@Test
+	public void subPathIsPartOfKey() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url1 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo?ref=main&subPath=one");
+		GitRepoUrlRef url2 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo?ref=main&subPath=two");
+
+		cache.store(url1, SHA1, content(cache, "one"));
+		assertThat(cache.lookup(url2)).isEmpty();
+		cache.store(url2, SHA1, content(cache, "two"));
+		assertThat(cache.lookup(url1).get().resolve("file.txt")).hasContent("one");
+		assertThat(cache.lookup(url2).get().resolve("file.txt")).hasContent("two");
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 15);
+		GitRepoUrlRef url1 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo1");
+		GitRepoUrlRef url2 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo2");
+
+		cache.store(url1, SHA1, content(cache, "0123456789"));
+		cache.store(url2, SHA2, content(cache, "0123456789"));
+
+		assertThat(cache.lookup(url1)).isEmpty();
+		assertThat(cache.lookup(url2)).isPresent();
+		assertThat(cache.getEntries()).hasSize(1);
+	}
+
+	@Test
+	public void pinnedIsNotEvicted() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 15);
+		GitRepoUrlRef url1 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo1");
+		GitRepoUrlRef url2 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo2");
+		GitRepoUrlRef url3 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo3");
+
+		Path stored1 = cache.store(url1, SHA1, content(cache, "0123456789"));
+		cache.pin(stored1);
+		cache.store(url2, SHA2, content(cache, "0123456789"));
+		assertThat(cache.lookup(url1)).hasValue(stored1);
+		assertThat(stored1.resolve("file.txt")).hasContent("0123456789");
+
+		cache.unpin(stored1);
+		Files.setLastModifiedTime(stored1.getParent().resolve("entry.yml"), FileTime.fromMillis(0));
+		cache.store(url3, SHA1, content(cache, "0123456789"));
+		assertThat(cache.lookup(url1)).isEmpty();
+		assertThat(cache.lookup(url3)).isPresent();
+	}
+
+	@Test
+	public void derivedContentIsKeptWithEntry() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url = GitRepoUrlRef.fromUriString("https://github.com/fake/repo");
+		Path stored = cache.store(url, SHA1, content(cache, "hello"));
+
+		assertThat(cache.lookupDerived(stored, "derived1")).isEmpty();
+		cache.storeDerived(stored, "derived1", (dir) -> {
+			try {
+				Files.writeString(dir.resolve("derived.txt"), "derived");
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertThat(cache.lookupDerived(stored, "derived1").get().resolve("derived.txt")).hasContent("derived");
+
+		Path notCached = Files.createDirectories(tempDir.resolve("other").resolve("content"));
+		cache.storeDerived(notCached, "derived1", (dir) -> {});
+		assertThat(cache.lookupDerived(notCached, "derived1")).isEmpty();
+
+		cache.clear();
+		assertThat(cache.lookupDerived(stored, "derived1")).isEmpty();
+	}
+
+	@Test
+	public void concurrentlyDerivedContentIsKept() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url = GitRepoUrlRef.fromUriString("https://github.com/fake/repo");
+		Path stored = cache.store(url, SHA1, content(cache, "hello"));
+
+		// other generation stores same derived content while this one is writing it
+		cache.storeDerived(stored, "derived1", (dir) -> {
+			cache.storeDerived(stored, "derived1", (other) -> write(other.resolve("derived.txt"), "first"));
+			write(dir.resolve("derived.txt"), "second");
+		});
+
+		assertThat(cache.lookupDerived(stored, "derived1").get().resolve("derived.txt")).hasContent("first");
+	}
+
+	@Test
+	public void derivedContentCountsTowardsSize() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 15);
+		GitRepoUrlRef url1 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo1");
+		GitRepoUrlRef url2 = GitRepoUrlRef.fromUriString("https://github.com/fake/repo2");
+
+		Path stored1 = cache.store(url1, SHA1, content(cache, "01234"));
+		cache.storeDerived(stored1, "derived1", (dir) -> {
+			try {
+				Files.writeString(dir.resolve("derived.txt"), "0123456789");
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertThat(cache.lookupDerived(stored1, "derived1")).isPresent();
+		Files.setLastModifiedTime(stored1.getParent().resolve("entry.yml"), FileTime.fromMillis(0));
+
+		cache.store(url2, SHA2, content(cache, "01234"));
+		assertThat(cache.lookup(url1)).isEmpty();
+		assertThat(cache.lookup(url2)).isPresent();
+	}
+
+	@Test
+	public void clearRemovesAll() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		GitRepoUrlRef url = GitRepoUrlRef.fromUriString("https://github.com/fake/repo");
+
+		cache.store(url, SHA1, content(cache, "hello"));
+		assertThat(cache.clear()).isEqualTo(1);
+		assertThat(cache.lookup(url)).isEmpty();
+		assertThat(cache.getEntries()).isEmpty();
+	}
+
+	private static void write(Path file, String text) {
+		try {
+			Files.writeString(file, text);
+		}
+		catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static Path content(TemplateCache cache, String text) throws IOException {
+		Path dir = cache.createStagingDirectory().resolve("repo");
+		Files.createDirectories(dir);
+		Files.writeString(dir.resolve("file.txt"), text);
+		return dir;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.git;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.up.config.TemplateRepositoryProperties;
+import org.springframework.up.config.UpCliProperties;
+import org.springframework.util.FileSystemUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UrlRepositoryServiceTests {
+
+	private final static String URL = "https://github.com/fake/repo?ref=main";
+	private final static String SHA1 = "1111111111111111111111111111111111111111";
+	private final static String SHA2 = "2222222222222222222222222222222222222222";
+
+	@TempDir
+	Path tempDir;
+
+	private UpCliProperties properties;
+
+	private FakeRemoteRepository remote;
+
+	private UrlRepositoryService service;
+
+	@BeforeEach
+	public void setup() {
+		properties = new UpCliProperties();
+		remote = new FakeRemoteRepository(SHA1);
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		service = new UrlRepositoryService(new TemplateRepositoryProperties(), properties, cache,
+				new GitClientRegistry()) {
+
+			@Override
+			RemoteRepository remoteRepository(GitRepoUrlRef url) {
+				return remote;
+			}
+		};
+	}
+
+	@Test
+	public void missRetrievesAndHitDoesNotResolve() {
+		Path first = service.retrieveRepositoryContents(URL);
+		assertThat(first.resolve("sha.txt")).hasContent(SHA1);
+		assertThat(remote.resolved).isEqualTo(1);
+		assertThat(remote.retrieved).containsExactly(SHA1);
+
+		Path second = service.retrieveRepositoryContents(URL);
+		assertThat(second).isEqualTo(first);
+		assertThat(remote.resolved).isEqualTo(1);
+		assertThat(remote.retrieved).containsExactly(SHA1);
+	}
+
+	@Test
+	public void staleRefIsRevalidatedWithoutRetrieving() {
+		properties.getTemplateCache().setRevalidateAfter(Duration.ZERO);
+		Path first = service.retrieveRepositoryContents(URL);
+
+		Path second = service.retrieveRepositoryContents(URL);
+		assertThat(second).isEqualTo(first);
+		assertThat(remote.resolved).isEqualTo(2);
+		assertThat(remote.retrieved).containsExactly(SHA1);
+	}
+
+	@Test
+	public void staleRefResolvingToNewCommitIsRetrieved() {
+		properties.getTemplateCache().setRevalidateAfter(Duration.ZERO);
+		Path first = service.retrieveRepositoryContents(URL);
+
+		remote.sha = SHA2;
+		Path second = service.retrieveRepositoryContents(URL);
+		assertThat(second).isNotEqualTo(first);
+		assertThat(second.resolve("sha.txt")).hasContent(SHA2);
+		assertThat(remote.retrieved).containsExactly(SHA1, SHA2);
+	}
+
+	@Test
+	public void commitShaRefIsNotRevalidated() {
+		properties.getTemplateCache().setRevalidateAfter(Duration.ZERO);
+		String url = "https://github.com/fake/repo?ref=" + SHA1;
+		Path first = service.retrieveRepositoryContents(url);
+
+		Path second = service.retrieveRepositoryContents(url);
+		assertThat(second).isEqualTo(first);
+		assertThat(remote.resolved).isEqualTo(1);
+	}
+
+	@Test
+	public void disabledCacheRetrievesRefWithoutResolving() throws IOException {
+		properties.getTemplateCache().setEnabled(false);
+		Path content = service.retrieveRepositoryContents(URL);
+		try {
+			assertThat(remote.resolved).isEqualTo(0);
+			assertThat(remote.retrieved).containsExactly("main");
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(content.getParent());
+		}
+	}
+
+	private static class FakeRemoteRepository implements UrlRepositoryService.RemoteRepository {
+
+		String sha;
+		int resolved;
+		final List<String> retrieved = new ArrayList<>();
+
+		FakeRemoteRepository(String sha) {
+			this.sha = sha;
+		}
+
+		@Override
+		public String resolveSha() {
+			resolved++;
+			return sha;
+		}
+
+		@Override
+		public Path retrieve(String sha, Path targetPath) {
+			retrieved.add(sha);
+			try {
+				Path dir = Files.createDirectories(targetPath.resolve("repo"));
+				Files.writeString(dir.resolve("sha.txt"), String.valueOf(this.sha));
+				return dir;
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
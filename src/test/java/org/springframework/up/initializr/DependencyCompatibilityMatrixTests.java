@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.initializr;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.up.initializr.model.Dependency;
+import org.springframework.up.initializr.model.DependencyCategory;
+import org.springframework.up.initializr.model.IdName;
+import org.springframework.up.initializr.model.Metadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DependencyCompatibilityMatrixTests {
+
+	@Test
+	public void computesCompatibilityPerBootVersion() {
+		Metadata metadata = new Metadata();
+		DependencyCategory web = new DependencyCategory();
+		web.setValues(Arrays.asList(dependency("web", null), dependency("graphql", "2.7.0-M1")));
+		DependencyCategory cloud = new DependencyCategory();
+		cloud.setValues(Arrays.asList(dependency("cloud-gateway", "[2.4.0,2.7.0-M1)")));
+		metadata.getDependencies().setValues(Arrays.asList(web, cloud));
+		metadata.getBootVersion().setValues(Arrays.asList(bootVersion("2.6.4"), bootVersion("2.7.0-SNAPSHOT")));
+
+		DependencyCompatibilityMatrix matrix = new DependencyCompatibilityMatrix(metadata);
+
+		assertThat(ids(matrix, "2.6.4")).isEqualTo("web,cloud-gateway");
+		assertThat(ids(matrix, "2.7.0-SNAPSHOT")).isEqualTo("web,graphql");
+		assertThat(ids(matrix, "2.3.0")).isEqualTo("web");
+		assertThat(ids(matrix, null)).isEqualTo("web,graphql,cloud-gateway");
+		assertThat(matrix.getCompatible("2.7.0-SNAPSHOT").get(1)).isTrue();
+		assertThat(matrix.getCompatible("2.6.4").get(1)).isFalse();
+	}
+
+	@Test
+	public void unparsableBootVersionIsCompatibleWithNothing() {
+		Metadata metadata = new Metadata();
+		DependencyCategory web = new DependencyCategory();
+		web.setValues(Arrays.asList(dependency("web", null), dependency("graphql", "2.7.0-M1")));
+		metadata.getDependencies().setValues(Arrays.asList(web));
+		metadata.getBootVersion().setValues(Arrays.asList(bootVersion("not-a-version"), bootVersion("2.7.0")));
+
+		DependencyCompatibilityMatrix matrix = new DependencyCompatibilityMatrix(metadata);
+
+		assertThat(ids(matrix, "not-a-version")).isEmpty();
+		assertThat(ids(matrix, "2.7.0")).isEqualTo("web,graphql");
+	}
+
+	private static String ids(DependencyCompatibilityMatrix matrix, String bootVersion) {
+		return matrix.getCompatibleDependencies(bootVersion).stream()
+				.map(Dependency::getId)
+				.collect(Collectors.joining(","));
+	}
+
+	private static Dependency dependency(String id, String versionRange) {
+		Dependency dependency = new Dependency();
+		dependency.setId(id);
+		dependency.setName(id);
+		dependency.setVersionRange(versionRange);
+		return dependency;
+	}
+
+	private static IdName bootVersion(String id) {
+		IdName bootVersion = new IdName();
+		bootVersion.setId(id);
+		bootVersion.setName(id);
+		return bootVersion;
+	}
+}
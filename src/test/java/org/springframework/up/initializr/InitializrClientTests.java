@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.initializr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.up.UpException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InitializrClientTests {
+
+	private final static String METADATA = "{\"bootVersion\":{\"default\":\"2.6.4\",\"values\":[{\"id\":\"2.6.4\"}]},"
+			+ "\"dependencies\":{\"values\":[{\"name\":\"Web\",\"values\":[{\"id\":\"web\",\"name\":\"Spring Web\"}]}]}}";
+
+	@Test
+	public void offlineUsesMirror() {
+		List<String> requested = new ArrayList<>();
+		InitializrClient client = InitializrClient.builder(stub(requested))
+				.target("http://initializr.internal.example")
+				.offline(true)
+				.build();
+
+		assertThat(client.getMetadata().getBootVersion().getValues()).hasSize(1);
+		assertThat(client.getDependencyCompatibility().getCompatibleDependencies("2.6.4")).hasSize(1);
+		assertThat(requested).hasSize(1).allMatch(url -> url.startsWith("http://initializr.internal.example"));
+	}
+
+	@Test
+	public void offlineFailsFastWithPublicInitializr() {
+		List<String> requested = new ArrayList<>();
+		InitializrClient client = InitializrClient.builder(stub(requested))
+				.target("https://start.spring.io")
+				.offline(true)
+				.build();
+
+		assertThatThrownBy(() -> client.getMetadata())
+				.isInstanceOf(UpException.class)
+				.hasMessageContaining("Offline mode");
+		assertThat(requested).isEmpty();
+	}
+
+	@Test
+	public void missingCachedMetadataIsFetchedAndCached(@TempDir Path tempDir) {
+		InitializrMetadataCache cache = new InitializrMetadataCache(tempDir, Duration.ofHours(1));
+		List<String> requested = new ArrayList<>();
+		InitializrClient client = InitializrClient.builder(stub(requested))
+				.target("http://initializr.internal.example")
+				.metadataCache(cache)
+				.build();
+
+		assertThat(client.getMetadata().getBootVersion().getDefaultversion()).isEqualTo("2.6.4");
+		assertThat(requested).hasSize(1);
+		assertThat(cache.read("http://initializr.internal.example").get().getJson()).isEqualTo(METADATA);
+	}
+
+	@Test
+	public void freshCachedMetadataIsUsedWithoutRequest(@TempDir Path tempDir) {
+		InitializrMetadataCache cache = new InitializrMetadataCache(tempDir, Duration.ofHours(1));
+		cache.write("http://initializr.internal.example", METADATA.replace("2.6.4", "2.6.3"));
+		List<String> requested = new ArrayList<>();
+		InitializrClient client = InitializrClient.builder(stub(requested))
+				.target("http://initializr.internal.example")
+				.metadataCache(cache)
+				.build();
+
+		assertThat(client.getMetadata().getBootVersion().getDefaultversion()).isEqualTo("2.6.3");
+		assertThat(requested).isEmpty();
+	}
+
+	@Test
+	public void staleCachedMetadataIsServedAndThenRefreshed(@TempDir Path tempDir) throws Exception {
+		InitializrMetadataCache cache = new InitializrMetadataCache(tempDir, Duration.ZERO);
+		cache.write("http://initializr.internal.example", METADATA.replace("2.6.4", "2.6.3"));
+		CompletableFuture<ClientResponse> response = new CompletableFuture<>();
+		WebClient.Builder webClient = WebClient.builder()
+				.exchangeFunction(request -> Mono.fromFuture(response));
+		InitializrClient client = InitializrClient.builder(webClient)
+				.target("http://initializr.internal.example")
+				.metadataCache(cache)
+				.build();
+
+		// served from a cache while a refresh is still waiting for a response
+		assertThat(client.getMetadata().getBootVersion().getDefaultversion()).isEqualTo("2.6.3");
+		assertThat(cache.read("http://initializr.internal.example").get().getJson()).contains("2.6.3");
+
+		response.complete(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, "application/vnd.initializr.v2.2+json")
+				.body(METADATA)
+				.build());
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!cache.read("http://initializr.internal.example").get().getJson().equals(METADATA)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(cache.read("http://initializr.internal.example").get().getJson()).isEqualTo(METADATA);
+	}
+
+	@Test
+	public void generateExtractsStreamedStarter(@TempDir Path tempDir) throws IOException {
+		byte[] starter = starter("demo/pom.xml", "<project></project>");
+		List<String> requested = new ArrayList<>();
+		WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+			requested.add(request.url().toString());
+			// received in small buffers like from a network
+			DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+			Flux<DataBuffer> body = Flux.range(0, (starter.length + 15) / 16)
+					.map(i -> factory.wrap(Arrays.copyOfRange(starter, i * 16, Math.min(starter.length, i * 16 + 16))));
+			return Mono.just(ClientResponse.create(HttpStatus.OK).body(body).build());
+		});
+		InitializrClient client = InitializrClient.builder(webClient)
+				.target("http://initializr.internal.example")
+				.build();
+
+		client.generate(tempDir, "maven-project", "java", "2.6.4", Arrays.asList("web", "actuator"), "0.0.1",
+				"com.example", "demo", "demo", "Demo project", "com.example.demo", "jar", "11");
+
+		assertThat(tempDir.resolve("demo/pom.xml")).hasContent("<project></project>");
+		assertThat(requested).hasSize(1);
+		assertThat(requested.get(0)).startsWith("http://initializr.internal.example").contains("/starter.tgz?")
+				.contains("type=maven-project", "dependencies=web,actuator", "bootVersion=2.6.4",
+						"packageName=com.example.demo");
+	}
+
+	private static byte[] starter(String name, String content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+			byte[] data = content.getBytes(StandardCharsets.UTF_8);
+			TarArchiveEntry entry = new TarArchiveEntry(name);
+			entry.setSize(data.length);
+			tar.putArchiveEntry(entry);
+			tar.write(data);
+			tar.closeArchiveEntry();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static WebClient.Builder stub(List<String> requested) {
+		return WebClient.builder().exchangeFunction(request -> {
+			requested.add(request.url().toString());
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CONTENT_TYPE, "application/vnd.initializr.v2.2+json")
+					.body(METADATA)
+					.build());
+		});
+	}
+}
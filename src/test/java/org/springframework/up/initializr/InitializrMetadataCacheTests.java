@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.initializr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.up.initializr.InitializrMetadataCache.CachedMetadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InitializrMetadataCacheTests {
+
+	private final static String URL = "https://start.spring.io";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void missingEntryIsEmpty() {
+		InitializrMetadataCache cache = new InitializrMetadataCache(tempDir.resolve("cache"), Duration.ofHours(1));
+
+		assertThat(cache.read(URL)).isEmpty();
+	}
+
+	@Test
+	public void writtenEntryIsFresh() {
+		InitializrMetadataCache cache = new InitializrMetadataCache(tempDir.resolve("cache"), Duration.ofHours(1));
+		cache.write(URL, "{}");
+
+		CachedMetadata cached = cache.read(URL).get();
+		assertThat(cached.getJson()).isEqualTo("{}");
+		assertThat(cached.isStale()).isFalse();
+		assertThat(cache.read("http://other.example")).isEmpty();
+	}
+
+	@Test
+	public void oldEntryIsStaleUntilRewritten() throws IOException {
+		Path cacheDir = tempDir.resolve("cache");
+		InitializrMetadataCache cache = new InitializrMetadataCache(cacheDir, Duration.ofHours(1));
+		cache.write(URL, "{}");
+		FileTime old = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis());
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			files.forEach(file -> {
+				try {
+					Files.setLastModifiedTime(file, old);
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+		}
+
+		assertThat(cache.read(URL).get().isStale()).isTrue();
+
+		cache.write(URL, "{\"new\":true}");
+		CachedMetadata cached = cache.read(URL).get();
+		assertThat(cached.getJson()).isEqualTo("{\"new\":true}");
+		assertThat(cached.isStale()).isFalse();
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			assertThat(files).hasSize(1);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.up.UpException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArchiveUtilsTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void extractsFilesAndDirectories() throws IOException {
+		byte[] archive = tarGz(new String[][] {
+			{ "repo-abc/", null },
+			{ "repo-abc/README.md", "hello" },
+			{ "repo-abc/src/main/App.java", "class App {}" }
+		});
+
+		ArchiveUtils.extractTarGz(new ByteArrayInputStream(archive), tempDir);
+
+		assertThat(tempDir.resolve("repo-abc/README.md")).hasContent("hello");
+		assertThat(tempDir.resolve("repo-abc/src/main/App.java")).hasContent("class App {}");
+	}
+
+	@Test
+	public void extractsOnlySubPath() throws IOException {
+		byte[] archive = tarGz(new String[][] {
+			{ "repo-abc/", null },
+			{ "repo-abc/README.md", "hello" },
+			{ "repo-abc/one/", null },
+			{ "repo-abc/one/file.txt", "one" },
+			{ "repo-abc/one-more/file.txt", "one-more" },
+			{ "repo-abc/two/file.txt", "two" }
+		});
+
+		ArchiveUtils.extractTarGz(new ByteArrayInputStream(archive), tempDir, "/one/");
+
+		assertThat(tempDir.resolve("repo-abc/one/file.txt")).hasContent("one");
+		assertThat(tempDir.resolve("repo-abc/README.md")).doesNotExist();
+		assertThat(tempDir.resolve("repo-abc/one-more")).doesNotExist();
+		assertThat(tempDir.resolve("repo-abc/two")).doesNotExist();
+	}
+
+	@Test
+	public void entriesOutsideOfTargetAreRejected() throws IOException {
+		byte[] archive = tarGz(new String[][] {
+			{ "../evil.txt", "evil" }
+		});
+
+		assertThatThrownBy(() -> ArchiveUtils.extractTarGz(new ByteArrayInputStream(archive), tempDir))
+				.isInstanceOf(UpException.class);
+		assertThat(tempDir.resolveSibling("evil.txt")).doesNotExist();
+	}
+
+	static byte[] tarGz(String[][] entries) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+			for (String[] entry : entries) {
+				TarArchiveEntry tarEntry = new TarArchiveEntry(entry[0]);
+				if (entry[1] == null) {
+					tar.putArchiveEntry(tarEntry);
+				}
+				else {
+					byte[] content = entry[1].getBytes(StandardCharsets.UTF_8);
+					tarEntry.setSize(content.length);
+					tar.putArchiveEntry(tarEntry);
+					tar.write(content);
+				}
+				tar.closeArchiveEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+}
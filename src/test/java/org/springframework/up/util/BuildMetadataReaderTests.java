@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildMetadataReaderTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void readsGradleCoordinates() throws IOException {
+		Files.writeString(tempDir.resolve("settings.gradle"), "rootProject.name = 'demo'\n");
+		Files.writeString(tempDir.resolve("build.gradle"), "plugins {\n\tid 'org.springframework.boot' version '2.6.4'\n}\n"
+				+ "publishing {\n\tversion = '9.9.9'\n}\n"
+				+ "group = 'com.example'\nversion = '0.0.1-SNAPSHOT'\n");
+
+		Optional<ProjectInfo> projectInfo = new BuildMetadataReader().read(ProjectIndex.build(tempDir, 1));
+
+		assertThat(projectInfo).hasValueSatisfying(info -> {
+			assertThat(info.getName()).isEqualTo("demo");
+			assertThat(info.getArtifactId()).isEqualTo("demo");
+			assertThat(info.getGroupId()).isEqualTo("com.example");
+			assertThat(info.getVersion()).isEqualTo("0.0.1-SNAPSHOT");
+		});
+	}
+
+	@Test
+	public void readsKotlinGradleCoordinates() throws IOException {
+		Files.writeString(tempDir.resolve("settings.gradle.kts"), "rootProject.name = \"demo\"\n");
+		Files.writeString(tempDir.resolve("build.gradle.kts"), "group = \"com.example\"\nversion = \"1.0\"\n");
+
+		Optional<ProjectInfo> projectInfo = new BuildMetadataReader().read(ProjectIndex.build(tempDir, 1));
+
+		assertThat(projectInfo).hasValueSatisfying(info -> {
+			assertThat(info.getName()).isEqualTo("demo");
+			assertThat(info.getGroupId()).isEqualTo("com.example");
+			assertThat(info.getVersion()).isEqualTo("1.0");
+		});
+	}
+
+	@Test
+	public void savesAndLoadsProjectInfo() {
+		BuildMetadataReader.save(Optional.of(new ProjectInfo("demo", "com.example", "demo", null)), tempDir);
+		assertThat(BuildMetadataReader.load(tempDir)).hasValueSatisfying(info -> {
+			assertThat(info.getName()).isEqualTo("demo");
+			assertThat(info.getVersion()).isNull();
+		});
+
+		BuildMetadataReader.save(Optional.empty(), tempDir);
+		assertThat(BuildMetadataReader.load(tempDir)).isEmpty();
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.up.git.GitRepoUrlRef;
+import org.springframework.up.git.TemplateCache;
+import org.springframework.up.support.TestFileUtils;
+import org.springframework.up.util.PackageRefactorer.Changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackageRefactorerTests {
+
+	private final static String FROM_PACKAGE = "com.example.demo";
+
+	private final static String TO_PACKAGE = "org.acme.app";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void refactorsIndexWithoutModifyingIt() throws IOException {
+		Path template = template();
+		Map<String, String> before = tree(template);
+		ProjectIndex index = ProjectIndex.build(template, 2);
+
+		Changes changes = new PackageRefactorer(2).refactor(index, FROM_PACKAGE, TO_PACKAGE,
+				Files.createDirectory(tempDir.resolve("refactored")));
+
+		assertThat(tree(template)).isEqualTo(before);
+		assertThat(changes.getDeleted()).contains("src/main/java/com/example/demo/DemoApplication.java",
+				"src/main/java/com/example/demo/web/GreetingController.java");
+		assertThat(changes.getWritten()).contains("src/main/java/org/acme/app/DemoApplication.java",
+				"src/main/java/org/acme/app/web/GreetingController.java");
+		Map<String, String> generated = generate(index.withChanges(changes), "generated");
+		assertThat(generated).containsOnlyKeys("src/main/java/org/acme/app/DemoApplication.java",
+				"src/main/java/org/acme/app/web/GreetingController.java",
+				"src/main/java/org/acme/app/repository/GreetingRepository.java",
+				"src/test/java/org/acme/app/DemoApplicationTests.java",
+				"src/main/resources/application.properties");
+		assertThat(generated.get("src/main/java/org/acme/app/web/GreetingController.java"))
+				.startsWith("package org.acme.app.web;")
+				.contains("import org.acme.app.repository.GreetingRepository;");
+		assertThat(tempDir.resolve("generated/src/main/java/com")).doesNotExist();
+	}
+
+	@Test
+	public void replayedRefactoringGivesSameTree() throws IOException {
+		Path template = template();
+		ProjectIndex index = ProjectIndex.build(template, 2);
+		Changes changes = new PackageRefactorer(2).refactor(index, FROM_PACKAGE, TO_PACKAGE,
+				Files.createDirectory(tempDir.resolve("refactored")));
+		Path saved = tempDir.resolve("saved");
+		changes.save(saved);
+
+		Changes replayed = Changes.replay(saved);
+
+		assertThat(replayed.getDeleted()).isEqualTo(changes.getDeleted());
+		assertThat(replayed.getWritten()).containsExactlyInAnyOrderElementsOf(changes.getWritten());
+		assertThat(generate(index.withChanges(replayed), "replayed"))
+				.isEqualTo(generate(index.withChanges(changes), "fresh"));
+		// deleted sources were the only files in old package directories
+		assertThat(tempDir.resolve("replayed/src/main/java/com/example/demo")).doesNotExist();
+		assertThat(tempDir.resolve("replayed/src/test/java/com")).doesNotExist();
+	}
+
+	@Test
+	public void refactoringIsCachedAfterMiss() throws IOException {
+		TemplateCache cache = new TemplateCache(tempDir.resolve("cache"), 1024 * 1024);
+		Path staged = cache.createStagingDirectory().resolve("repo");
+		TestFileUtils.copyDirectory(template(), staged);
+		Path content = cache.store(GitRepoUrlRef.fromUriString("https://github.com/fake/demo"),
+				"1111111111111111111111111111111111111111", staged);
+		ProjectIndex index = ProjectIndex.build(content, 2);
+
+		Optional<Path> miss = cache.lookupDerived(content, "refactor");
+		assertThat(miss).isEmpty();
+		Changes changes = new PackageRefactorer(2).refactor(index, FROM_PACKAGE, TO_PACKAGE,
+				Files.createDirectory(tempDir.resolve("refactored")));
+		cache.storeDerived(content, "refactor", changes::save);
+
+		Optional<Path> hit = cache.lookupDerived(content, "refactor");
+		assertThat(hit).isPresent();
+		assertThat(generate(index.withChanges(Changes.replay(hit.get())), "replayed"))
+				.isEqualTo(generate(index.withChanges(changes), "fresh"));
+	}
+
+	@Test
+	public void nonAsciiSourcesKeepTheirContent() throws IOException {
+		Path template = template();
+		Path controller = template.resolve("src/main/java/com/example/demo/web/GreetingController.java");
+		String greeting = "// Gr\u00fc\u00dfe, \u3053\u3093\u306b\u3061\u306f\n";
+		Files.writeString(controller, greeting + Files.readString(controller), StandardCharsets.UTF_8);
+		ProjectIndex index = ProjectIndex.build(template, 2);
+
+		Changes changes = new PackageRefactorer(2).refactor(index, FROM_PACKAGE, TO_PACKAGE,
+				Files.createDirectory(tempDir.resolve("refactored")));
+
+		String moved = "src/main/java/org/acme/app/web/GreetingController.java";
+		assertThat(Files.readString(changes.getDirectory().resolve(moved), StandardCharsets.UTF_8))
+				.startsWith(greeting)
+				.contains("package org.acme.app.web;");
+	}
+
+	@Test
+	public void nonUtf8SourcesKeepTheirCharset() throws IOException {
+		Path template = template();
+		Charset charset = Charset.forName("windows-1252");
+		Path controller = template.resolve("src/main/java/com/example/demo/web/GreetingController.java");
+		String greeting = "// Gr\u00fc\u00dfe \u20ac\n";
+		Files.writeString(controller, greeting + Files.readString(controller), charset);
+		ProjectIndex index = ProjectIndex.build(template, 2);
+
+		Changes changes = new PackageRefactorer(2).refactor(index, FROM_PACKAGE, TO_PACKAGE,
+				Files.createDirectory(tempDir.resolve("refactored")));
+
+		byte[] moved = Files.readAllBytes(
+				changes.getDirectory().resolve("src/main/java/org/acme/app/web/GreetingController.java"));
+		assertThat(Arrays.copyOf(moved, greeting.length())).isEqualTo(greeting.getBytes(charset));
+		assertThat(new String(moved, charset)).contains("package org.acme.app.web;");
+	}
+
+	private Path template() throws IOException {
+		// a copy so that a shared fixture is never changed by a test
+		Path template = tempDir.resolve("template");
+		TestFileUtils.copyDirectory(new ClassPathResource("template/demo").getFile().toPath(), template);
+		return template;
+	}
+
+	private Map<String, String> generate(ProjectIndex index, String name) throws IOException {
+		Path target = tempDir.resolve(name);
+		new ProjectFileCopier(2).copy(index, target.toFile(), new TokenReplacer(Collections.emptyMap()));
+		return tree(target);
+	}
+
+	static Map<String, String> tree(Path root) throws IOException {
+		Map<String, String> tree = new TreeMap<>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+				tree.put(root.relativize(path).toString().replace('\\', '/'), Files.readString(path));
+			}
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.model.Model;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PomReaderTests {
+
+	@Test
+	public void streamedCoordinatesMatchFullModel() throws IOException {
+		assertCoordinatesMatchFullModel("pom/boot-template-pom.xml");
+	}
+
+	@Test
+	public void streamedCoordinatesMatchFullModelWhenUnordered() throws IOException {
+		assertCoordinatesMatchFullModel("pom/unordered-pom.xml");
+	}
+
+	private void assertCoordinatesMatchFullModel(String resource) throws IOException {
+		File pom = new ClassPathResource(resource).getFile();
+		PomReader pomReader = new PomReader();
+
+		Model model = pomReader.readPom(pom);
+		ProjectInfo coordinates = pomReader.readCoordinates(pom);
+
+		assertThat(coordinates.getName()).isEqualTo(model.getName());
+		assertThat(coordinates.getGroupId()).isEqualTo(model.getGroupId());
+		assertThat(coordinates.getArtifactId()).isEqualTo(model.getArtifactId());
+		assertThat(coordinates.getVersion()).isEqualTo(model.getVersion());
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectFileCopierTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void copiesAndReplacesProjectName() throws IOException {
+		Path from = tempDir.resolve("from");
+		Path to = tempDir.resolve("to");
+		String[] fileNames = new String[50];
+		for (int i = 0; i < fileNames.length; i++) {
+			fileNames[i] = "dir" + (i % 5) + "/file" + i + ".txt";
+			Path file = from.resolve(fileNames[i]);
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, "name is demo\nother line\n");
+		}
+		TokenReplacer replacer = new TokenReplacer(Collections.singletonMap("demo", "newproject"));
+
+		new ProjectFileCopier(4).copy(ProjectIndex.build(from, 4), to.toFile(), replacer);
+
+		for (String fileName : fileNames) {
+			assertThat(to.resolve(fileName)).hasContent("name is newproject\nother line");
+		}
+	}
+
+	@Test
+	public void transfersBinaryAndUnmatchedFilesAsIs() throws IOException {
+		Path from = tempDir.resolve("from");
+		Path to = tempDir.resolve("to");
+		Files.createDirectories(from);
+		byte[] binary = new byte[] { (byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 'd', 'e', 'm', 'o' };
+		Files.write(from.resolve("image.png"), binary);
+		Files.writeString(from.resolve("other.txt"), "no tokens here\r\n");
+		TokenReplacer replacer = new TokenReplacer(Collections.singletonMap("demo", "newproject"));
+
+		new ProjectFileCopier(2).copy(ProjectIndex.build(from, 2), to.toFile(), replacer);
+
+		assertThat(to.resolve("image.png")).hasBinaryContent(binary);
+		assertThat(to.resolve("other.txt")).hasBinaryContent(Files.readAllBytes(from.resolve("other.txt")));
+	}
+
+	@Test
+	public void copiesChangedFilesOfIndex() throws IOException {
+		Path from = tempDir.resolve("from");
+		Path changes = tempDir.resolve("changes");
+		Path to = tempDir.resolve("to");
+		Files.createDirectories(from.resolve("a"));
+		Files.writeString(from.resolve("a/Kept.java"), "class Kept {}\n");
+		Files.writeString(from.resolve("a/Old.java"), "class Old {}\n");
+		Files.createDirectories(changes.resolve("b"));
+		Files.writeString(changes.resolve("b/New.java"), "class New {}\n");
+		ProjectIndex index = ProjectIndex.build(from, 2).withChanges(new PackageRefactorer.Changes(
+				Collections.singletonList("a/Old.java"), Collections.singletonList("b/New.java"), changes));
+
+		new ProjectFileCopier(2).copy(index, to.toFile(), new TokenReplacer(Collections.emptyMap()));
+
+		assertThat(to.resolve("a/Kept.java")).hasContent("class Kept {}");
+		assertThat(to.resolve("b/New.java")).hasContent("class New {}");
+		assertThat(to.resolve("a/Old.java")).doesNotExist();
+		assertThat(from.resolve("a/Old.java")).exists();
+	}
+
+	@Test
+	public void keepsExecutableBit() throws IOException {
+		Path from = tempDir.resolve("from");
+		Path to = tempDir.resolve("to");
+		Files.createDirectories(from);
+		File script = Files.writeString(from.resolve("mvnw"), "#!/bin/sh\n").toFile();
+		script.setExecutable(true);
+
+		new ProjectFileCopier(2).copy(ProjectIndex.build(from, 2), to.toFile(),
+				new TokenReplacer(Collections.emptyMap()));
+
+		assertThat(to.resolve("mvnw").toFile().canExecute()).isTrue();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectIndexTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void indexesProjectInSinglePass() throws IOException {
+		write("pom.xml", "<project></project>\n");
+		write("src/main/java/com/example/demo/DemoApplication.java",
+				"package com.example.demo;\n\n@SpringBootApplication\npublic class DemoApplication {\n}\n");
+		write("src/main/java/com/example/demo/Other.java", "package com.example.demo;\n\npublic class Other {\n}\n");
+		Path image = tempDir.resolve("src/main/resources/image.png");
+		Files.createDirectories(image.getParent());
+		Files.write(image, new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0 });
+
+		ProjectIndex index = ProjectIndex.build(tempDir, 2);
+
+		assertThat(index.getFiles()).containsExactly("pom.xml", "src/main/java/com/example/demo/DemoApplication.java",
+				"src/main/java/com/example/demo/Other.java", "src/main/resources/image.png");
+		assertThat(index.getJavaFiles()).hasSize(2);
+		assertThat(new RootPackageFinder().findApplicationClasses(index))
+				.containsExactly("src/main/java/com/example/demo/DemoApplication.java");
+		assertThat(index.getBuildFiles()).containsExactly("pom.xml");
+		assertThat(index.isText("pom.xml")).isTrue();
+		assertThat(index.isText("src/main/java/com/example/demo/Other.java")).isTrue();
+		assertThat(index.isText("src/main/resources/image.png")).isFalse();
+	}
+
+	@Test
+	public void reflectsChanges() throws IOException {
+		String from = "src/main/java/com/example/demo/DemoApplication.java";
+		String to = "src/main/java/com/example/other/DemoApplication.java";
+		write(from, "package com.example.demo;\n\n@SpringBootApplication\npublic class DemoApplication {\n}\n");
+		ProjectIndex index = ProjectIndex.build(tempDir, 1);
+
+		Files.delete(tempDir.resolve(from));
+		write(to, "package com.example.other;\n\n@SpringBootApplication\npublic class DemoApplication {\n}\n");
+		ProjectIndex changed = index.withChanges(new PackageRefactorer.Changes(
+				Collections.singletonList(from), Collections.singletonList(to), tempDir));
+
+		assertThat(changed.getFiles()).containsExactly(to);
+		assertThat(new RootPackageFinder().findApplicationClasses(changed)).containsExactly(to);
+		assertThat(changed.isText(to)).isTrue();
+	}
+
+	@Test
+	public void resolvesChangesFromOtherDirectory() throws IOException {
+		String from = "src/main/java/com/example/demo/DemoApplication.java";
+		String to = "src/main/java/com/example/other/DemoApplication.java";
+		write(from, "package com.example.demo;\n\n@SpringBootApplication\npublic class DemoApplication {\n}\n");
+		write("pom.xml", "<project></project>\n");
+		ProjectIndex index = ProjectIndex.build(tempDir, 1);
+
+		// index is built already, changes can live under its root
+		Path changes = tempDir.resolve("changes");
+		Path changed = changes.resolve(to);
+		Files.createDirectories(changed.getParent());
+		Files.writeString(changed, "package com.example.other;\n\n@SpringBootApplication\npublic class DemoApplication {\n}\n");
+		ProjectIndex changedIndex = index.withChanges(new PackageRefactorer.Changes(
+				Collections.singletonList(from), Collections.singletonList(to), changes));
+
+		assertThat(changedIndex.getFiles()).containsExactly("pom.xml", to);
+		assertThat(new RootPackageFinder().findApplicationClasses(changedIndex)).containsExactly(to);
+		assertThat(changedIndex.resolve(to)).isEqualTo(changed);
+		assertThat(changedIndex.resolve("pom.xml")).isEqualTo(tempDir.resolve("pom.xml"));
+		assertThat(tempDir.resolve(from)).exists();
+	}
+
+	private void write(String name, String content) throws IOException {
+		Path file = tempDir.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}
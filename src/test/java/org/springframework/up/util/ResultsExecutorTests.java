@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.java.ChangePackage;
+import org.openrewrite.java.Java11Parser;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.up.support.TestFileUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResultsExecutorTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void writesIntoTargetLikeSerialExecution() throws IOException {
+		Path serial = template("serial");
+		Path root = template("root");
+		Map<String, String> before = PackageRefactorerTests.tree(root);
+		Path target = Files.createDirectory(tempDir.resolve("target"));
+		ResultsExecutor serialExecutor = new ResultsExecutor(true);
+		serialExecutor.addAll(results(serial, null));
+		ResultsExecutor executor = new ResultsExecutor(true, 4);
+		executor.addAll(results(root, root));
+
+		serialExecutor.execute();
+		executor.executeInto(root, target);
+
+		assertThat(PackageRefactorerTests.tree(root)).isEqualTo(before);
+		Map<String, String> written = PackageRefactorerTests.tree(target);
+		assertThat(written).containsOnlyKeys("src/main/java/org/acme/app/DemoApplication.java",
+				"src/main/java/org/acme/app/web/GreetingController.java",
+				"src/main/java/org/acme/app/repository/GreetingRepository.java",
+				"src/test/java/org/acme/app/DemoApplicationTests.java");
+		assertThat(PackageRefactorerTests.tree(serial)).containsAllEntriesOf(written);
+		// emptied package directories are pruned by a serial execution
+		assertThat(serial.resolve("src/main/java/com")).doesNotExist();
+	}
+
+	@Test
+	public void failedWriteLeavesRootUntouched() throws IOException {
+		Path root = template("root");
+		Map<String, String> before = PackageRefactorerTests.tree(root);
+		Path target = Files.createDirectory(tempDir.resolve("target"));
+		// a directory where a refactored source would be written can't be replaced
+		Files.createDirectories(target.resolve("src/main/java/org/acme/app/DemoApplication.java"));
+		ResultsExecutor executor = new ResultsExecutor(true, 4);
+		executor.addAll(results(root, root));
+
+		assertThatThrownBy(() -> executor.executeInto(root, target)).isInstanceOf(IOException.class);
+
+		assertThat(PackageRefactorerTests.tree(root)).isEqualTo(before);
+	}
+
+	@Test
+	public void noResultsWriteNothing() throws IOException {
+		Path root = template("root");
+		Path target = Files.createDirectory(tempDir.resolve("target"));
+		ResultsExecutor executor = new ResultsExecutor(true, 4);
+		executor.addAll(Collections.emptyList());
+
+		executor.executeInto(root, target);
+
+		assertThat(PackageRefactorerTests.tree(target)).isEmpty();
+	}
+
+	@Test
+	public void unencodableCharacterFailsWrite() throws IOException {
+		Path root = template("root");
+		Path application = root.resolve("src/main/java/com/example/demo/DemoApplication.java");
+		Files.writeString(application, "// Gr\u00fc\u00dfe\n" + Files.readString(application));
+		Path target = Files.createDirectory(tempDir.resolve("target"));
+		ResultsExecutor executor = new ResultsExecutor(true, 4, path -> StandardCharsets.US_ASCII);
+		executor.addAll(results(root, root));
+
+		assertThatThrownBy(() -> executor.executeInto(root, target))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Could not encode");
+	}
+
+	private Path template(String name) throws IOException {
+		Path template = tempDir.resolve(name);
+		TestFileUtils.copyDirectory(new ClassPathResource("template/demo").getFile().toPath(), template);
+		return template;
+	}
+
+	private static List<Result> results(Path root, Path relativeTo) throws IOException {
+		List<Path> sources;
+		try (Stream<Path> paths = Files.walk(root)) {
+			sources = paths.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+		}
+		List<? extends SourceFile> compilationUnits = new Java11Parser.Builder().charset(StandardCharsets.UTF_8).build()
+				.parse(sources, relativeTo, new InMemoryExecutionContext(e -> {}));
+		return new ChangePackage("com.example.demo", "org.acme.app", true).run(compilationUnits);
+	}
+}
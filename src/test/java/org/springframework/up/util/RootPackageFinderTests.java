@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RootPackageFinderTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void detectsAnnotationOnlyInHeader() throws IOException {
+		assertThat(isApplicationClass("package x;\n// {\n@SpringBootApplication\npublic class A {}")).isTrue();
+		assertThat(isApplicationClass(
+				"package x;\n/** {@link B} */\n@SpringBootApplication(exclude = {B.class})\nclass A {}")).isTrue();
+		assertThat(isApplicationClass("/* @SpringBootApplication */\npackage x;\nclass A {}")).isFalse();
+		assertThat(isApplicationClass("package x;\nclass A {\n@SpringBootApplication\nclass B {}\n}")).isFalse();
+		assertThat(isApplicationClass("package x;\n@SpringBootApplicationTest\nclass A {}")).isFalse();
+	}
+
+	@Test
+	public void detectsAnnotationAfterArrayValuedAnnotation() throws IOException {
+		assertThat(isApplicationClass(
+				"package x;\n@Import({ B.class, C.class })\n@SpringBootApplication\npublic class A {}")).isTrue();
+		assertThat(isApplicationClass(
+				"package x;\n@Import(value = { B.class }, name = \"{\")\n@SpringBootApplication\nclass A {}")).isTrue();
+		assertThat(isApplicationClass(
+				"package x;\n@Import({ B.class })\nclass A {\n@SpringBootApplication\nclass B {}\n}")).isFalse();
+	}
+
+	@Test
+	public void prefersMainSourcesAndShallowestPackage() throws IOException {
+		write("src/test/java/com/example/TestApplication.java", "package com.example;\n@SpringBootApplication\nclass TestApplication {}");
+		write("src/main/java/com/example/demo/sub/SubApplication.java", "package com.example.demo.sub;\n@SpringBootApplication\nclass SubApplication {}");
+		write("src/main/java/com/example/demo/DemoApplication.java", "package com.example.demo;\n@SpringBootApplication\nclass DemoApplication {}");
+		write("src/main/java/com/example/other/OtherApplication.java", "package com.example.other;\n@SpringBootApplication\nclass OtherApplication {}");
+		ProjectIndex index = ProjectIndex.build(tempDir, 1);
+
+		assertThat(new RootPackageFinder().findRootPackage(index)).hasValue("com.example.demo");
+		assertThat(new RootPackageFinder().findApplicationClasses(index)).containsExactly(
+				"src/main/java/com/example/demo/DemoApplication.java",
+				"src/main/java/com/example/other/OtherApplication.java");
+	}
+
+	@Test
+	public void stopsReadingAfterFirstDepthWithCandidates() throws IOException {
+		write("src/main/java/com/example/demo/DemoApplication.java", "package com.example.demo;\n@SpringBootApplication\nclass DemoApplication {}");
+		write("src/main/java/com/example/demo/sub/Sub.java", "package com.example.demo.sub;\nclass Sub {}");
+		ProjectIndex index = ProjectIndex.build(tempDir, 1);
+		// a deeper source is never read, a missing one would fail a search
+		Files.delete(tempDir.resolve("src/main/java/com/example/demo/sub/Sub.java"));
+
+		assertThat(new RootPackageFinder().findApplicationClasses(index))
+				.containsExactly("src/main/java/com/example/demo/DemoApplication.java");
+	}
+
+	@Test
+	public void fallsBackToOtherSources() throws IOException {
+		write("src/main/java/com/example/demo/Demo.java", "package com.example.demo;\nclass Demo {}");
+		write("src/test/java/com/example/TestApplication.java", "package com.example;\n@SpringBootApplication\nclass TestApplication {}");
+
+		assertThat(new RootPackageFinder().findApplicationClasses(ProjectIndex.build(tempDir, 1)))
+				.containsExactly("src/test/java/com/example/TestApplication.java");
+	}
+
+	private boolean isApplicationClass(String content) throws IOException {
+		Path file = tempDir.resolve("A.java");
+		Files.writeString(file, content);
+		return RootPackageFinder.isApplicationClass(file);
+	}
+
+	private void write(String name, String content) throws IOException {
+		Path file = tempDir.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}
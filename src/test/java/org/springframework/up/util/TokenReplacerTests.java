@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.up.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenReplacerTests {
+
+	@Test
+	public void replacesMultipleTokensPerLine() throws IOException {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("demo", "orders");
+		tokens.put("com.example", "com.acme");
+		TokenReplacer replacer = new TokenReplacer(tokens);
+
+		assertThat(replace(replacer, "demo demo com.example\r\nno match\r\n"))
+				.isEqualTo("orders orders com.acme\r\nno match\r\n");
+	}
+
+	@Test
+	public void longestTokenWins() throws IOException {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("demo", "orders");
+		tokens.put("demo-app", "orders-service");
+		TokenReplacer replacer = new TokenReplacer(tokens);
+
+		assertThat(replace(replacer, "demo-app demo dem")).isEqualTo("orders-service orders dem");
+	}
+
+	@Test
+	public void tokensAcrossBufferBoundary() throws IOException {
+		TokenReplacer replacer = new TokenReplacer(Map.of("demo", "orders"));
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			buf.append("demo;");
+		}
+
+		String replaced = replace(replacer, buf.toString());
+
+		assertThat(replaced).doesNotContain("demo");
+		assertThat(replaced).hasSize(50000 * "orders;".length());
+	}
+
+	@Test
+	public void matchesWithoutOutput() throws IOException {
+		TokenReplacer replacer = new TokenReplacer(Map.of("demo", "orders"));
+
+		assertThat(replacer.matches(new ByteArrayInputStream("a demo".getBytes(StandardCharsets.UTF_8)))).isTrue();
+		assertThat(replacer.matches(new ByteArrayInputStream("a dem".getBytes(StandardCharsets.UTF_8)))).isFalse();
+	}
+
+	@Test
+	public void projectValuesAreReplacedAsWholeWords() throws IOException {
+		ProjectInfo from = new ProjectInfo("demo", "com.example", "demo", "0.0.1");
+		ProjectInfo to = new ProjectInfo("orders", "com.example", "orders", "0.0.1");
+		TokenReplacer replacer = TokenReplacer.of(from, to);
+
+		assertThat(replace(replacer, "<artifactId>demo</artifactId>\nspring.application.name=demo\ndemo-0.0.1.jar"))
+				.isEqualTo("<artifactId>orders</artifactId>\nspring.application.name=orders\norders-0.0.1.jar");
+		assertThat(replace(replacer, "class DemoApp { demoService; mydemo; com.example.demo.Foo; \u00e9demo }"))
+				.isEqualTo("class DemoApp { demoService; mydemo; com.example.demo.Foo; \u00e9demo }");
+		assertThat(replacer.matches(new ByteArrayInputStream("a demos".getBytes(StandardCharsets.UTF_8)))).isFalse();
+	}
+
+	@Test
+	public void shorterWholeWordWinsOverLongerEmbedded() throws IOException {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("demo", "orders");
+		tokens.put("demo-app", "orders-service");
+		TokenReplacer replacer = new TokenReplacer(tokens, true);
+
+		assertThat(replace(replacer, "demo-apps demo-app")).isEqualTo("orders-apps orders-service");
+	}
+
+	@Test
+	public void sameValuesAreNotReplaced() {
+		ProjectInfo from = new ProjectInfo("demo", "com.example", "demo", "0.0.1");
+		ProjectInfo to = new ProjectInfo("demo", "com.example", "demo", "0.0.1");
+
+		assertThat(TokenReplacer.of(from, to).isEmpty()).isTrue();
+	}
+
+	private static String replace(TokenReplacer replacer, String text) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		replacer.replace(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
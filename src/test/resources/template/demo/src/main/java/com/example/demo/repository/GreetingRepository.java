@@ -0,0 +1,8 @@
+package com.example.demo.repository;
+
+public class GreetingRepository {
+
+	public String findGreeting() {
+		return "Hello";
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.demo.web;
+
+import com.example.demo.repository.GreetingRepository;
+
+public class GreetingController {
+
+	private final GreetingRepository repository;
+
+	public GreetingController(GreetingRepository repository) {
+		this.repository = repository;
+	}
+
+	public String greet() {
+		return repository.findGreeting();
+	}
+}
@@ -0,0 +1,8 @@
+package com.example.demo;
+
+import com.example.demo.web.GreetingController;
+
+public class DemoApplicationTests {
+
+	private Class<?> controller = GreetingController.class;
+}